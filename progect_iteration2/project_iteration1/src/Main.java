@@ -1,9 +1,27 @@
+import api.ApiServer;
 import controllers.CarController;
 import controllers.RentalController;
 import database.DatabaseConnection;
+import database.PoolMetrics;
 import entities.User;
 import repositories.*;
 import services.AuthService;
+import services.AvailabilityCalendar;
+import services.AvailabilityEngine;
+import services.CarCache;
+import services.CarSearchIndex;
+import services.CategoryCatalog;
+import services.FleetImporter;
+import services.FleetStatistics;
+import services.OverdueTracker;
+import services.RentalHistoryCache;
+import services.RentalSearchIndex;
+import services.RentalService;
+import services.RentalStatisticsService;
+import services.StaffDashboard;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.util.Scanner;
 
 public class Main {
@@ -18,13 +36,98 @@ public class Main {
         CarRepository carRepository = new CarRepository();
         CategoryRepository categoryRepository = new CategoryRepository();
         RentalRepository rentalRepository = new RentalRepository();
+        rentalRepository.ensurePagingSchema();
 
         AuthService authService = new AuthService(userRepository);
 
+        CategoryCatalog categoryCatalog = new CategoryCatalog(categoryRepository);
+        categoryCatalog.refresh();
+        categoryCatalog.startAutoRefresh(300_000);
+
+        CarSearchIndex carSearchIndex = new CarSearchIndex(carRepository);
+        carRepository.addChangeListener(carSearchIndex);
+        carSearchIndex.rebuild();
+
+        CarCache carCache = new CarCache(carRepository, 1_000, 30_000);
+        carRepository.addChangeListener(carCache);
+
+        FleetStatistics fleetStatistics = new FleetStatistics(carRepository);
+        carRepository.addChangeListener(fleetStatistics);
+        fleetStatistics.rebuild();
+
+        AvailabilityEngine availabilityEngine = new AvailabilityEngine(rentalRepository);
+        rentalRepository.addChangeListener(availabilityEngine);
+
+        AvailabilityCalendar availabilityCalendar = new AvailabilityCalendar(carRepository, rentalRepository,
+                availabilityEngine, 365);
+        carRepository.addChangeListener(availabilityCalendar);
+        rentalRepository.addChangeListener(availabilityCalendar);
+        availabilityCalendar.rebuild();
+
+        RentalStatisticsService rentalStatisticsService = new RentalStatisticsService(rentalRepository, 60_000);
+        rentalRepository.addChangeListener(rentalStatisticsService);
+
+        OverdueTracker overdueTracker = new OverdueTracker(rentalRepository);
+        rentalRepository.addChangeListener(overdueTracker);
+        overdueTracker.rebuild();
+        overdueTracker.start(60_000);
+
+        RentalSearchIndex rentalSearchIndex = new RentalSearchIndex(rentalRepository);
+        rentalRepository.addChangeListener(rentalSearchIndex);
+        rentalSearchIndex.rebuild();
+
+        RentalHistoryCache rentalHistoryCache = new RentalHistoryCache(rentalRepository, 10_000, 15 * 60_000);
+        rentalRepository.addChangeListener(rentalHistoryCache);
+
+        // -Dcarsharing.journal.path=... включает write-behind журнал для бронирований и смены статусов аренд
+        RentalJournalWriter journalWriter = startRentalJournal(rentalRepository);
+
+        RentalService rentalService = new RentalService(rentalRepository, carRepository, carCache,
+                availabilityEngine);
+
+        PoolMetrics poolMetrics = dbConnection.getPoolMetrics();
+        int repositoryThreads = Integer.getInteger("carsharing.repository.threads",
+                poolMetrics != null ? poolMetrics.getMaxPoolSize() : 10);
+        RepositoryExecutor repositoryExecutor = new RepositoryExecutor(repositoryThreads, 1_000);
+        StaffDashboard staffDashboard = new StaffDashboard(
+                new AsyncRentalRepository(rentalRepository, repositoryExecutor),
+                new AsyncCarRepository(carRepository, repositoryExecutor),
+                new AsyncUserRepository(userRepository, repositoryExecutor), overdueTracker);
+
+        // java Main --server [port] - HTTP API вместо консольного меню
+        if (args.length > 0 && "--server".equals(args[0])) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            int workers = Integer.getInteger("carsharing.api.workers", Runtime.getRuntime().availableProcessors() * 4);
+            ApiServer apiServer = new ApiServer(authService, carCache, carSearchIndex, availabilityCalendar,
+                    fleetStatistics, rentalService, rentalStatisticsService, rentalHistoryCache);
+            try {
+                apiServer.start(port, workers);
+            } catch (IOException e) {
+                System.out.println("Error starting API server: " + e.getMessage());
+                dbConnection.closeConnection();
+                return;
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                apiServer.stop(1);
+                repositoryExecutor.shutdown();
+                categoryCatalog.stopAutoRefresh();
+                overdueTracker.stop();
+                stopRentalJournal(journalWriter);
+                authService.getSessionStore().shutdown();
+                dbConnection.closeConnection();
+            }));
+            System.out.println("API server listening on port " + port + " (" + workers + " workers)");
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
 
-        CarController carController = new CarController(carRepository, authService, scanner);
-        RentalController rentalController = new RentalController(rentalRepository, carRepository, authService, scanner);
+        CarController carController = new CarController(carRepository, carCache, carSearchIndex,
+                categoryCatalog, availabilityCalendar, fleetStatistics,
+                new FleetImporter(carRepository, categoryCatalog), authService, scanner);
+        RentalController rentalController = new RentalController(rentalRepository, carCache, rentalService,
+                rentalStatisticsService, staffDashboard, overdueTracker, rentalSearchIndex,
+                rentalHistoryCache, authService, scanner);
 
         boolean running = true;
 
@@ -73,20 +176,23 @@ public class Main {
                         rentalController.calculateRentalCost();
                         break;
                     case 13:
+                        carController.findFreeCarsForDates();
+                        break;
+                    case 14:
                         if (authService.isStaffOrHigher()) {
                             carManagementMenu(carController, scanner);
                         } else {
                             System.out.println("Access denied. Staff role required.");
                         }
                         break;
-                    case 14:
+                    case 15:
                         if (authService.isStaffOrHigher()) {
                             rentalManagementMenu(rentalController, scanner);
                         } else {
                             System.out.println("Access denied. Staff role required.");
                         }
                         break;
-                    case 15:
+                    case 16:
                         running = false;
                         System.out.println("Thank you for using Car Management System!");
                         break;
@@ -104,9 +210,61 @@ public class Main {
         }
 
         scanner.close();
+        categoryCatalog.stopAutoRefresh();
+        overdueTracker.stop();
+        stopRentalJournal(journalWriter);
+        authService.getSessionStore().shutdown();
+        repositoryExecutor.shutdown();
         dbConnection.closeConnection();
     }
 
+    private static RentalJournalWriter startRentalJournal(RentalRepository rentalRepository) {
+        String path = System.getProperty("carsharing.journal.path");
+        if (path == null) {
+            return null;
+        }
+
+        RentalJournal journal;
+        try {
+            journal = RentalJournal.open(Paths.get(path), Integer.getInteger("carsharing.journal.sizeMb", 64) << 20);
+        } catch (IOException e) {
+            System.out.println("Error opening rental journal: " + e.getMessage());
+            return null;
+        }
+
+        RentalJournalWriter journalWriter = new RentalJournalWriter(journal, rentalRepository,
+                Integer.getInteger("carsharing.journal.batchSize", 256),
+                Long.getLong("carsharing.journal.flushIntervalMs", 50L));
+        try {
+            journalWriter.start();
+        } catch (SQLException e) {
+            System.out.println("Error starting rental journal: " + e.getMessage());
+            closeQuietly(journal);
+            return null;
+        }
+        rentalRepository.setJournal(journal);
+        System.out.println("Rental journal enabled: " + path + " (" + journalWriter.getPendingCount()
+                + " record(s) to replay)");
+        return journalWriter;
+    }
+
+    private static void stopRentalJournal(RentalJournalWriter journalWriter) {
+        if (journalWriter != null) {
+            journalWriter.stop(10_000);
+            if (journalWriter.getPendingCount() > 0) {
+                System.out.println(journalWriter.getPendingCount() + " rental journal record(s) will be replayed on next start");
+            }
+        }
+    }
+
+    private static void closeQuietly(RentalJournal journal) {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Error closing rental journal: " + e.getMessage());
+        }
+    }
+
     private static void displayMainMenu(AuthService authService) {
         System.out.println("\n===== MAIN MENU =====");
         System.out.println("1. Login");
@@ -121,17 +279,19 @@ public class Main {
         System.out.println("10. View My Rentals");
         System.out.println("11. Cancel Rental");
         System.out.println("12. Calculate Rental Cost");
+        System.out.println("13. Find Cars Free for Dates");
 
         if (authService.isStaffOrHigher()) {
-            System.out.println("13. Car Management (Staff)");
-            System.out.println("14. Rental Management (Staff)");
+            System.out.println("14. Car Management (Staff)");
+            System.out.println("15. Rental Management (Staff)");
         }
 
-        System.out.println("15. Exit");
+        System.out.println("16. Exit");
 
-        if (authService.isLoggedIn()) {
-            System.out.println("\nLogged in as: " + authService.getCurrentUser().getUsername() +
-                    " (" + authService.getCurrentUser().getRole() + ")");
+        User currentUser = authService.getCurrentUser();
+        if (currentUser != null) {
+            System.out.println("\nLogged in as: " + currentUser.getUsername() +
+                    " (" + currentUser.getRole() + ")");
         }
     }
 
@@ -143,14 +303,15 @@ public class Main {
             System.out.println("1. View All Cars");
             System.out.println("2. Update Car Status");
             System.out.println("3. Show Car Statistics");
-            System.out.println("4. Back to Main Menu");
+            System.out.println("4. Import Cars from CSV");
+            System.out.println("5. Back to Main Menu");
             System.out.print("Select option: ");
 
             int choice = Integer.parseInt(scanner.nextLine());
 
             switch (choice) {
                 case 1:
-                    carController.displayAllCars();
+                    carController.browseAllCars();
                     break;
                 case 2:
                     carController.updateCarStatus();
@@ -159,6 +320,9 @@ public class Main {
                     carController.showCarStatistics();
                     break;
                 case 4:
+                    carController.importFleet();
+                    break;
+                case 5:
                     inMenu = false;
                     break;
                 default:
@@ -178,14 +342,15 @@ public class Main {
             System.out.println("4. View Overdue Rentals");
             System.out.println("5. Complete Rental");
             System.out.println("6. Show Rental Statistics");
-            System.out.println("7. Back to Main Menu");
+            System.out.println("7. Staff Dashboard");
+            System.out.println("8. Back to Main Menu");
             System.out.print("Select option: ");
 
             int choice = Integer.parseInt(scanner.nextLine());
 
             switch (choice) {
                 case 1:
-                    rentalController.displayAllRentals();
+                    rentalController.browseAllRentals();
                     break;
                 case 2:
                     rentalController.searchRentals();
@@ -203,6 +368,9 @@ public class Main {
                     rentalController.showRentalStatistics();
                     break;
                 case 7:
+                    rentalController.showStaffDashboard();
+                    break;
+                case 8:
                     inMenu = false;
                     break;
                 default:
@@ -262,8 +430,9 @@ public class Main {
     }
 
     private static void logout(AuthService authService) {
-        if (authService.isLoggedIn()) {
-            String username = authService.getCurrentUser().getUsername();
+        User currentUser = authService.getCurrentUser();
+        if (currentUser != null) {
+            String username = currentUser.getUsername();
             authService.logout();
             System.out.println("Logged out successfully. Goodbye, " + username + "!");
         } else {
@@ -0,0 +1,467 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import entities.Car;
+import entities.Permission;
+import entities.Rental;
+import entities.RentalStatistics;
+import entities.RentalSummary;
+import entities.User;
+import repositories.BulkStatusUpdate;
+import services.AuthService;
+import services.AvailabilityCalendar;
+import services.CarCache;
+import services.CarSearchIndex;
+import services.FleetSnapshot;
+import services.FleetStatistics;
+import services.RentalHistoryCache;
+import services.RentalOutcome;
+import services.RentalService;
+import services.RentalStatisticsService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// HTTP API поверх тех же сервисов, что и консольное меню. Ответы в JSON,
+// параметры берутся из query string и из тела POST в формате application/x-www-form-urlencoded.
+// Авторизация: POST /api/login возвращает токен, дальше заголовок "Authorization: Bearer <token>"
+public class ApiServer {
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final AuthService authService;
+    private final CarCache carCache;
+    private final CarSearchIndex carSearchIndex;
+    private final AvailabilityCalendar availabilityCalendar;
+    private final FleetStatistics fleetStatistics;
+    private final RentalService rentalService;
+    private final RentalStatisticsService rentalStatisticsService;
+    private final RentalHistoryCache rentalHistoryCache;
+
+    private HttpServer server;
+    private ThreadPoolExecutor executor;
+
+    public ApiServer(AuthService authService, CarCache carCache, CarSearchIndex carSearchIndex,
+                     AvailabilityCalendar availabilityCalendar, FleetStatistics fleetStatistics,
+                     RentalService rentalService, RentalStatisticsService rentalStatisticsService,
+                     RentalHistoryCache rentalHistoryCache) {
+        this.authService = authService;
+        this.carCache = carCache;
+        this.carSearchIndex = carSearchIndex;
+        this.availabilityCalendar = availabilityCalendar;
+        this.fleetStatistics = fleetStatistics;
+        this.rentalService = rentalService;
+        this.rentalStatisticsService = rentalStatisticsService;
+        this.rentalHistoryCache = rentalHistoryCache;
+    }
+
+    // Пул ограничен и по потокам, и по очереди: при перегрузке запрос выполняет поток приёма,
+    // что притормаживает приём новых соединений вместо роста очереди
+    public synchronized void start(int port, int workerThreads) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server is already running");
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(workerThreads * 64),
+                r -> new Thread(r, "api-worker-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/api/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public synchronized void stop(int delaySeconds) {
+        if (server == null) {
+            return;
+        }
+        server.stop(delaySeconds);
+        executor.shutdown();
+        server = null;
+        executor = null;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = splitPath(exchange.getRequestURI().getPath());
+            Map<String, String> params = readParams(exchange);
+            Object body = route(exchange.getRequestMethod(), path, params, bearerToken(exchange));
+            send(exchange, 200, body);
+        } catch (ApiException e) {
+            send(exchange, e.status, error(e.getMessage()));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // NumberFormatException тоже сюда
+            send(exchange, 400, error(e.getMessage()));
+        } catch (Exception e) {
+            System.out.println("Error handling API request: " + e.getMessage());
+            send(exchange, 500, error("Internal server error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // path без префикса "api": /api/cars/5 -> ["cars", "5"]
+    private Object route(String method, String[] path, Map<String, String> params, String token) {
+        String resource = path.length > 0 ? path[0] : "";
+        boolean get = "GET".equals(method);
+        boolean post = "POST".equals(method);
+
+        switch (resource) {
+            case "login":
+                requireMethod(post);
+                return login(params);
+            case "logout":
+                requireMethod(post);
+                authService.closeSession(token);
+                return Map.of("loggedOut", true);
+            case "cars":
+                requireMethod(get);
+                return routeCars(path, params);
+            case "rentals":
+                return routeRentals(method, path, params, token);
+            case "stats":
+                requireMethod(get);
+                requirePermission(token, Permission.VIEW_STATISTICS);
+                return routeStats(path);
+            default:
+                throw new ApiException(404, "Not found");
+        }
+    }
+
+    private Object login(Map<String, String> params) {
+        String token = authService.openSession(required(params, "username"), required(params, "password"))
+                .orElseThrow(() -> new ApiException(401, "Invalid username or password"));
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("token", token);
+        body.put("user", userJson(authService.getUser(token)));
+        return body;
+    }
+
+    private Object routeCars(String[] path, Map<String, String> params) {
+        if (path.length == 1) {
+            String query = params.get("q");
+            List<Car> cars = query != null && !query.isBlank()
+                    ? carSearchIndex.search(query)
+                    : carCache.getAvailableCars();
+            return carsJson(cars);
+        }
+        if (path.length == 2 && "free".equals(path[1])) {
+            LocalDate start = date(params, "start");
+            LocalDate end = date(params, "end");
+            RentalService.validatePeriod(start, end);
+            return carsJson(availabilityCalendar.findFreeCars(start, end, params.get("category"),
+                    optionalDouble(params, "minPrice"), optionalDouble(params, "maxPrice")));
+        }
+
+        int carId = Integer.parseInt(path[1]);
+        if (path.length == 2) {
+            Car car = carCache.getCarById(carId);
+            if (car == null) {
+                throw new ApiException(404, "Car not found");
+            }
+            return carJson(car);
+        }
+        if (path.length == 3 && "availability".equals(path[2])) {
+            LocalDate start = date(params, "start");
+            LocalDate end = date(params, "end");
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("carId", carId);
+            body.put("startDate", start);
+            body.put("endDate", end);
+            body.put("available", rentalService.isCarAvailable(carId, start, end));
+            return body;
+        }
+        if (path.length == 3 && "quote".equals(path[2])) {
+            int days = Integer.parseInt(required(params, "days"));
+            Double total = rentalService.estimateCost(carId, days);
+            if (total == null) {
+                throw new ApiException(404, "Car not found");
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("carId", carId);
+            body.put("days", days);
+            body.put("totalCost", total);
+            return body;
+        }
+        throw new ApiException(404, "Not found");
+    }
+
+    private Object routeRentals(String method, String[] path, Map<String, String> params, String token) {
+        User user = requireUser(token);
+
+        if (path.length == 1 && "GET".equals(method)) {
+            return rentalsJson(rentalHistoryCache.getRentalsByUser(user.getId()));
+        }
+        if (path.length == 1 && "POST".equals(method)) {
+            RentalOutcome outcome = rentalService.createRental(user,
+                    Integer.parseInt(required(params, "carId")),
+                    date(params, "start"), date(params, "end"),
+                    params.get("customerName"), params.get("customerEmail"));
+            switch (outcome.getResult()) {
+                case BOOKED:
+                    return rentalJson(outcome.getRental());
+                case CAR_NOT_FOUND:
+                    throw new ApiException(404, "Car not found");
+                case CAR_UNAVAILABLE:
+                    throw new ApiException(409, "Car not available");
+                case DATES_TAKEN:
+                    throw new ApiException(409, "Car is not available for the selected dates");
+                default:
+                    throw new ApiException(503, "Rental could not be created. Please try again");
+            }
+        }
+        if (path.length == 2 && "complete".equals(path[1]) && "POST".equals(method)) {
+            requirePermission(token, Permission.MANAGE_RENTALS);
+            List<Integer> rentalIds = new ArrayList<>();
+            for (String part : required(params, "ids").split(",")) {
+                rentalIds.add(Integer.parseInt(part.trim()));
+            }
+            BulkStatusUpdate update = rentalService.completeRentals(rentalIds);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("status", update.getStatus());
+            body.put("outcomes", update.getOutcomes());
+            body.put("freedCarIds", update.getFreedCarIds());
+            return body;
+        }
+        if (path.length == 3 && "POST".equals(method)) {
+            int rentalId = Integer.parseInt(path[1]);
+            boolean updated;
+            if ("complete".equals(path[2])) {
+                requirePermission(token, Permission.MANAGE_RENTALS);
+                updated = rentalService.completeRental(rentalId);
+            } else if ("cancel".equals(path[2])) {
+                updated = rentalService.cancelRental(user, rentalId);
+            } else {
+                throw new ApiException(404, "Not found");
+            }
+            if (!updated) {
+                throw new ApiException(404, "Rental not found");
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("rentalId", rentalId);
+            body.put("status", "complete".equals(path[2]) ? "COMPLETED" : "CANCELLED");
+            return body;
+        }
+        throw new ApiException(path.length == 1 ? 405 : 404, path.length == 1 ? "Method not allowed" : "Not found");
+    }
+
+    private Object routeStats(String[] path) {
+        if (path.length == 2 && "cars".equals(path[1])) {
+            FleetSnapshot stats = fleetStatistics.getSnapshot();
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("totalCars", stats.getTotalCars());
+            body.put("availableCars", stats.getAvailableCars());
+            body.put("averageDailyPrice", stats.getAveragePrice());
+            body.put("maxDailyPrice", stats.getMaxPrice());
+            body.put("minDailyPrice", stats.getMinPrice());
+            body.put("carsByCategory", stats.getCarsByCategory());
+            return body;
+        }
+        if (path.length == 2 && "rentals".equals(path[1])) {
+            RentalStatistics stats = rentalStatisticsService.getStatistics();
+            if (stats == null) {
+                throw new ApiException(503, "Rental statistics are not available right now");
+            }
+            List<Map<String, Object>> monthly = new ArrayList<>();
+            for (RentalStatistics.MonthlyRevenue month : stats.getMonthly()) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("month", month.getMonth());
+                item.put("rentals", month.getRentals());
+                item.put("revenue", month.getRevenue());
+                monthly.add(item);
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("totalRentals", stats.getTotalRentals());
+            body.put("rentalsByStatus", stats.getRentalsByStatus());
+            body.put("totalRevenue", stats.getTotalRevenue());
+            body.put("averageRentalPrice", stats.getAverageRentalPrice());
+            body.put("monthly", monthly);
+            return body;
+        }
+        throw new ApiException(404, "Not found");
+    }
+
+    private User requireUser(String token) {
+        User user = authService.getUser(token);
+        if (user == null) {
+            throw new ApiException(401, "Login required");
+        }
+        return user;
+    }
+
+    private void requirePermission(String token, Permission permission) {
+        requireUser(token);
+        if (!authService.can(token, permission)) {
+            throw new ApiException(403, "Access denied");
+        }
+    }
+
+    private static void requireMethod(boolean allowed) {
+        if (!allowed) {
+            throw new ApiException(405, "Method not allowed");
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static LocalDate date(Map<String, String> params, String name) {
+        return LocalDate.parse(required(params, name));
+    }
+
+    private static Double optionalDouble(Map<String, String> params, String name) {
+        String value = params.get(name);
+        return value == null || value.isBlank() ? null : Double.valueOf(value);
+    }
+
+    private static String[] splitPath(String path) {
+        String trimmed = path.replaceAll("^/+api/*", "").replaceAll("/+$", "");
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/+");
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    private static Map<String, String> readParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+
+        if ("POST".equals(exchange.getRequestMethod())) {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+                if (body.length > MAX_BODY_BYTES) {
+                    throw new ApiException(413, "Request body too large");
+                }
+                parseForm(new String(body, StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq >= 0 ? pair.substring(0, eq) : pair;
+            String value = eq >= 0 ? pair.substring(eq + 1) : "";
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, Object> error(String message) {
+        return Map.of("error", message != null ? message : "Bad request");
+    }
+
+    private static List<Map<String, Object>> carsJson(List<Car> cars) {
+        List<Map<String, Object>> result = new ArrayList<>(cars.size());
+        for (Car car : cars) {
+            result.add(carJson(car));
+        }
+        return result;
+    }
+
+    private static Map<String, Object> carJson(Car car) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", car.getId());
+        json.put("brand", car.getBrand());
+        json.put("model", car.getModel());
+        json.put("licensePlate", car.getLicensePlate());
+        json.put("year", car.getYear());
+        json.put("categoryId", car.getCategoryId());
+        json.put("categoryName", car.getCategoryName());
+        json.put("dailyPrice", car.getDailyPrice());
+        json.put("available", car.isAvailable());
+        return json;
+    }
+
+    private static List<Map<String, Object>> rentalsJson(List<RentalSummary> rentals) {
+        List<Map<String, Object>> result = new ArrayList<>(rentals.size());
+        for (RentalSummary rental : rentals) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("id", rental.getId());
+            json.put("carId", rental.getCarId());
+            json.put("startDate", rental.getStartDate());
+            json.put("endDate", rental.getEndDate());
+            json.put("totalPrice", rental.getTotalPrice());
+            json.put("status", rental.getStatus());
+            json.put("car", rental.getCarBrand() + " " + rental.getCarModel());
+            result.add(json);
+        }
+        return result;
+    }
+
+    private static Map<String, Object> rentalJson(Rental rental) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", rental.getId());
+        json.put("carId", rental.getCarId());
+        json.put("userId", rental.getUserId());
+        json.put("customerName", rental.getCustomerName());
+        json.put("customerEmail", rental.getCustomerEmail());
+        json.put("startDate", rental.getStartDate());
+        json.put("endDate", rental.getEndDate());
+        json.put("totalPrice", rental.getTotalPrice());
+        json.put("status", rental.getStatus());
+        if (rental.getCarBrand() != null) {
+            json.put("car", rental.getCarBrand() + " " + rental.getCarModel());
+        }
+        return json;
+    }
+
+    private static Map<String, Object> userJson(User user) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", user.getId());
+        json.put("username", user.getUsername());
+        json.put("fullName", user.getFullName());
+        json.put("role", user.getRole());
+        return json;
+    }
+
+    private static class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
\ No newline at end of file
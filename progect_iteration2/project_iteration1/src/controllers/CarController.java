@@ -1,24 +1,63 @@
 package controllers;
 
 import entities.Car;
+import entities.Category;
+import entities.Permission;
 import repositories.CarRepository;
+import repositories.Page;
 import services.AuthService;
+import services.AvailabilityCalendar;
+import services.CarCache;
+import services.CarSearchIndex;
+import services.CategoryCatalog;
+import services.FleetImporter;
+import services.FleetSnapshot;
+import services.FleetStatistics;
+import services.ImportReport;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 public class CarController {
+    private static final int PAGE_SIZE = 20;
+    private static final int IMPORT_BATCH_SIZE = 500;
+    private static final int IMPORT_COMMIT_INTERVAL = 5_000;
+
     private CarRepository carRepository;
+    private CarCache carCache;
+    private CarSearchIndex carSearchIndex;
+    private CategoryCatalog categoryCatalog;
+    private AvailabilityCalendar availabilityCalendar;
+    private FleetStatistics fleetStatistics;
+    private FleetImporter fleetImporter;
     private AuthService authService;
     private Scanner scanner;
 
-    public CarController(CarRepository carRepository, AuthService authService, Scanner scanner) {
+    public CarController(CarRepository carRepository, CarCache carCache, CarSearchIndex carSearchIndex,
+                         CategoryCatalog categoryCatalog,
+                         AvailabilityCalendar availabilityCalendar, FleetStatistics fleetStatistics,
+                         FleetImporter fleetImporter,
+                         AuthService authService, Scanner scanner) {
         this.carRepository = carRepository;
+        this.carCache = carCache;
+        this.carSearchIndex = carSearchIndex;
+        this.categoryCatalog = categoryCatalog;
+        this.availabilityCalendar = availabilityCalendar;
+        this.fleetStatistics = fleetStatistics;
+        this.fleetImporter = fleetImporter;
         this.authService = authService;
         this.scanner = scanner;
     }
 
     public void displayAvailableCars() {
-        List<Car> cars = carRepository.getAvailableCars();
+        List<Car> cars = carCache.getAvailableCars();
 
         System.out.println("\n=== Available Cars for Rent ===");
         System.out.printf("%-5s %-15s %-15s %-12s %-6s %-15s %-10s%n",
@@ -43,31 +82,75 @@ public class CarController {
             return;
         }
 
-        List<Car> cars = carRepository.getAllCarsWithCategory();
-
         System.out.println("\n=== All Cars (With Categories) ===");
         System.out.printf("%-5s %-15s %-15s %-12s %-6s %-15s %-10s %-10s%n",
                 "ID", "Brand", "Model", "License", "Year", "Category", "Price/Day", "Available");
         System.out.println("-------------------------------------------------------------------------------------------");
 
-        for (Car car : cars) {
-            System.out.printf("%-5d %-15s %-15s %-12s %-6d %-15s $%-9.2f %-10s%n",
-                    car.getId(),
-                    car.getBrand(),
-                    car.getModel(),
-                    car.getLicensePlate(),
-                    car.getYear(),
-                    car.getCategoryName() != null ? car.getCategoryName() : "N/A",
-                    car.getDailyPrice(),
-                    car.isAvailable() ? "Yes" : "No");
+        // Печатаем строки по мере чтения курсора, не дожидаясь всего парка
+        try (Stream<Car> cars = carRepository.streamAllCarsWithCategory()) {
+            cars.forEach(this::printCarWithAvailability);
         }
     }
 
+    // Постраничный просмотр парка: стоимость любой страницы как у первой
+    public void browseAllCars() {
+        if (!authService.canManageCars()) {
+            System.out.println("Access denied. Staff role required.");
+            return;
+        }
+
+        Page<Car> page = carRepository.getCarsPageAfter(null, PAGE_SIZE);
+        int pageNumber = 1;
+
+        while (true) {
+            System.out.println("\n=== All Cars (Page " + pageNumber + ") ===");
+            System.out.printf("%-5s %-15s %-15s %-12s %-6s %-15s %-10s %-10s%n",
+                    "ID", "Brand", "Model", "License", "Year", "Category", "Price/Day", "Available");
+            System.out.println("-------------------------------------------------------------------------------------------");
+
+            if (page.getItems().isEmpty()) {
+                System.out.println("No cars on this page.");
+            }
+            for (Car car : page.getItems()) {
+                printCarWithAvailability(car);
+            }
+
+            System.out.print("\n" + (page.hasNext() ? "[n] Next  " : "") +
+                    (page.hasPrevious() ? "[p] Previous  " : "") + "[q] Back: ");
+            String input = scanner.nextLine().trim().toLowerCase();
+
+            if (input.equals("n") && page.hasNext()) {
+                page = carRepository.getCarsPageAfter(page.getNextCursor(), PAGE_SIZE);
+                pageNumber++;
+            } else if (input.equals("p") && page.hasPrevious()) {
+                page = carRepository.getCarsPageBefore(page.getPreviousCursor(), PAGE_SIZE);
+                pageNumber--;
+            } else if (input.equals("q")) {
+                return;
+            } else {
+                System.out.println("Invalid option.");
+            }
+        }
+    }
+
+    private void printCarWithAvailability(Car car) {
+        System.out.printf("%-5d %-15s %-15s %-12s %-6d %-15s $%-9.2f %-10s%n",
+                car.getId(),
+                car.getBrand(),
+                car.getModel(),
+                car.getLicensePlate(),
+                car.getYear(),
+                car.getCategoryName() != null ? car.getCategoryName() : "N/A",
+                car.getDailyPrice(),
+                car.isAvailable() ? "Yes" : "No");
+    }
+
     public void searchCars() {
         System.out.print("\nSearch cars (brand, model, license, or category): ");
         String searchTerm = scanner.nextLine();
 
-        List<Car> results = carRepository.searchCars(searchTerm);
+        List<Car> results = carSearchIndex.search(searchTerm);
 
         if (results.isEmpty()) {
             System.out.println("No cars found matching: '" + searchTerm + "'");
@@ -94,25 +177,32 @@ public class CarController {
     }
 
     public void listCarsByCategory() {
-        System.out.println("\n=== Car Categories ===");
-        System.out.println("1. Economy");
-        System.out.println("2. SUV");
-        System.out.println("3. Luxury");
-        System.out.println("4. Sports");
-        System.out.print("Select category (1-4) or enter category name: ");
+        List<Category> categories = categoryCatalog.getCategories();
 
-        String input = scanner.nextLine();
-        String categoryName;
+        System.out.println("\n=== Car Categories ===");
+        for (int i = 0; i < categories.size(); i++) {
+            System.out.println((i + 1) + ". " + categories.get(i).getName());
+        }
+        System.out.print("Select category (1-" + categories.size() + ") or enter category name: ");
+
+        String input = scanner.nextLine().trim();
+        Category category = null;
+        try {
+            int number = Integer.parseInt(input);
+            if (number >= 1 && number <= categories.size()) {
+                category = categories.get(number - 1);
+            }
+        } catch (NumberFormatException e) {
+            category = categoryCatalog.findByName(input);
+        }
 
-        switch (input) {
-            case "1": categoryName = "Economy"; break;
-            case "2": categoryName = "SUV"; break;
-            case "3": categoryName = "Luxury"; break;
-            case "4": categoryName = "Sports"; break;
-            default: categoryName = input;
+        if (category == null) {
+            System.out.println("Unknown category: " + input);
+            return;
         }
 
-        List<Car> cars = carRepository.getCarsByCategory(categoryName);
+        String categoryName = category.getName();
+        List<Car> cars = carRepository.getCarsByCategoryId(category.getId());
 
         if (cars.isEmpty()) {
             System.out.println("No cars found in category: " + categoryName);
@@ -167,6 +257,65 @@ public class CarController {
         }
     }
 
+    // Машины, свободные на весь период, с необязательными фильтрами по категории и цене
+    public void findFreeCarsForDates() {
+        LocalDate startDate;
+        LocalDate endDate;
+        try {
+            System.out.print("\nStart Date (YYYY-MM-DD): ");
+            startDate = LocalDate.parse(scanner.nextLine().trim());
+            System.out.print("End Date (YYYY-MM-DD): ");
+            endDate = LocalDate.parse(scanner.nextLine().trim());
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid date format. Please use YYYY-MM-DD.");
+            return;
+        }
+
+        if (endDate.isBefore(startDate)) {
+            System.out.println("End date must not be before start date.");
+            return;
+        }
+
+        System.out.print("Category (leave empty for any): ");
+        String categoryInput = scanner.nextLine().trim();
+        String categoryName = categoryInput.isEmpty() ? null : categoryInput;
+
+        System.out.print("Maximum daily price (leave empty for any): $");
+        String priceInput = scanner.nextLine().trim();
+        Double maxPrice;
+        try {
+            maxPrice = priceInput.isEmpty() ? null : Double.parseDouble(priceInput);
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid price. Please enter a number.");
+            return;
+        }
+
+        List<Car> cars = availabilityCalendar.findFreeCars(startDate, endDate, categoryName, null, maxPrice);
+
+        if (cars.isEmpty()) {
+            System.out.println("No cars are free from " + startDate + " to " + endDate + ".");
+            return;
+        }
+
+        System.out.println("\n=== Cars Free from " + startDate + " to " + endDate + " ===");
+        System.out.printf("%-5s %-15s %-15s %-12s %-6s %-15s %-10s%n",
+                "ID", "Brand", "Model", "License", "Year", "Category", "Price/Day");
+        System.out.println("-----------------------------------------------------------------------------------");
+
+        for (Car car : cars) {
+            System.out.printf("%-5d %-15s %-15s %-12s %-6d %-15s $%-9.2f%n",
+                    car.getId(),
+                    car.getBrand(),
+                    car.getModel(),
+                    car.getLicensePlate(),
+                    car.getYear(),
+                    car.getCategoryName() != null ? car.getCategoryName() : "N/A",
+                    car.getDailyPrice());
+        }
+
+        System.out.println("\nFound " + cars.size() + " free car(s)");
+    }
+
     // Показать статистику по машинам
     public void showCarStatistics() {
         if (!authService.canManageCars()) {
@@ -174,7 +323,70 @@ public class CarController {
             return;
         }
 
-        carRepository.printCarStatistics();
+        FleetSnapshot stats = fleetStatistics.getSnapshot();
+        if (stats.isEmpty()) {
+            System.out.println("No cars in database.");
+            return;
+        }
+
+        System.out.println("\n=== Car Statistics ===");
+        System.out.println("Total Cars: " + stats.getTotalCars());
+        System.out.println("Available Cars: " + stats.getAvailableCars());
+        System.out.printf("Average Daily Price: $%.2f\n", stats.getAveragePrice());
+        System.out.printf("Most Expensive: $%.2f\n", stats.getMaxPrice());
+        System.out.printf("Cheapest: $%.2f\n", stats.getMinPrice());
+
+        System.out.println("\n=== Cars by Category ===");
+        stats.getCarsByCategory().forEach((category, count) ->
+                System.out.printf("%-15s: %d cars\n", category, count));
+
+        System.out.println("\n" + carCache.getMetrics());
+    }
+
+    // Импорт машин из CSV-файла
+    public void importFleet() {
+        if (!authService.can(Permission.IMPORT_CARS)) {
+            System.out.println("Access denied. Manager role required.");
+            return;
+        }
+
+        System.out.print("\nCSV file path: ");
+        Path source = Paths.get(scanner.nextLine().trim());
+        if (!Files.isReadable(source)) {
+            System.out.println("File not found: " + source);
+            return;
+        }
+
+        Path defaultRejects = Paths.get(source + ".rejects.csv");
+        System.out.print("Rejects file [" + defaultRejects + "]: ");
+        String rejectsInput = scanner.nextLine().trim();
+        Path rejects = rejectsInput.isEmpty() ? defaultRejects : Paths.get(rejectsInput);
+        System.out.print("Batch size [" + IMPORT_BATCH_SIZE + "]: ");
+        int batchSize = readIntOrDefault(IMPORT_BATCH_SIZE);
+        System.out.print("Commit every N rows [" + IMPORT_COMMIT_INTERVAL + "]: ");
+        int commitInterval = readIntOrDefault(IMPORT_COMMIT_INTERVAL);
+
+        ImportReport report;
+        try {
+            report = fleetImporter.importCsv(source, rejects, batchSize, commitInterval);
+        } catch (IOException | SQLException | IllegalArgumentException e) {
+            System.out.println("Error importing cars: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("\n=== Import Finished ===");
+        System.out.println("Rows read: " + report.getRowsRead());
+        System.out.println("Cars inserted: " + report.getInserted());
+        System.out.println("Rows rejected: " + report.getRejected() + " (duplicates: " + report.getDuplicates() + ")");
+        System.out.printf("Time: %.1f s, %.0f rows/s%n", report.getElapsedMillis() / 1000.0, report.getRowsPerSecond());
+        if (report.getRejected() > 0) {
+            System.out.println("Rejected rows written to " + rejects);
+        }
+    }
+
+    private int readIntOrDefault(int defaultValue) {
+        String input = scanner.nextLine().trim();
+        return input.isEmpty() ? defaultValue : Integer.parseInt(input);
     }
 
     // Обновить статус машины
@@ -200,7 +412,7 @@ public class CarController {
         System.out.print("\nEnter Car ID to view details: ");
         int carId = Integer.parseInt(scanner.nextLine());
 
-        Car car = carRepository.getCarById(carId);
+        Car car = carCache.getCarById(carId);
 
         if (car == null) {
             System.out.println("Car not found!");
@@ -1,27 +1,63 @@
 package controllers;
 
 import entities.Car;
+import entities.OverdueRental;
 import entities.Rental;
+import entities.RentalStatistics;
+import entities.RentalSummary;
 import entities.User;
-import repositories.CarRepository;
+import repositories.BulkStatusUpdate;
+import repositories.Page;
 import repositories.RentalRepository;
+import repositories.StatusUpdateOutcome;
 import services.AuthService;
+import services.CarCache;
+import services.OverdueTracker;
+import services.RentalHistoryCache;
+import services.RentalOutcome;
+import services.RentalSearchIndex;
+import services.RentalService;
+import services.RentalStatisticsService;
+import services.StaffDashboard;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
 
 public class RentalController {
+    private static final int PAGE_SIZE = 20;
+    private static final long DASHBOARD_TIMEOUT_SECONDS = 30;
+    private static final int SEARCH_LIMIT = 100;
+
     private RentalRepository rentalRepository;
-    private CarRepository carRepository;
+    private CarCache carCache;
+    private RentalService rentalService;
+    private RentalStatisticsService rentalStatisticsService;
+    private StaffDashboard staffDashboard;
+    private OverdueTracker overdueTracker;
+    private RentalSearchIndex rentalSearchIndex;
+    private RentalHistoryCache rentalHistoryCache;
     private AuthService authService;
     private Scanner scanner;
 
-    public RentalController(RentalRepository rentalRepository, CarRepository carRepository,
-                            AuthService authService, Scanner scanner) {
+    public RentalController(RentalRepository rentalRepository, CarCache carCache, RentalService rentalService,
+                            RentalStatisticsService rentalStatisticsService, StaffDashboard staffDashboard,
+                            OverdueTracker overdueTracker, RentalSearchIndex rentalSearchIndex,
+                            RentalHistoryCache rentalHistoryCache, AuthService authService, Scanner scanner) {
         this.rentalRepository = rentalRepository;
-        this.carRepository = carRepository;
+        this.carCache = carCache;
+        this.rentalService = rentalService;
+        this.rentalStatisticsService = rentalStatisticsService;
+        this.staffDashboard = staffDashboard;
+        this.overdueTracker = overdueTracker;
+        this.rentalSearchIndex = rentalSearchIndex;
+        this.rentalHistoryCache = rentalHistoryCache;
         this.authService = authService;
         this.scanner = scanner;
     }
@@ -34,7 +70,7 @@ public class RentalController {
             return;
         }
 
-        List<Car> availableCars = carRepository.getAvailableCars();
+        List<Car> availableCars = carCache.getAvailableCars();
         if (availableCars.isEmpty()) {
             System.out.println("No cars available for rent.");
             return;
@@ -52,8 +88,12 @@ public class RentalController {
         System.out.print("\nSelect Car ID: ");
         int carId = Integer.parseInt(scanner.nextLine());
 
-        Car selectedCar = carRepository.getCarById(carId);
-        if (selectedCar == null || !selectedCar.isAvailable()) {
+        // Машина уже есть в только что загруженном списке, повторно в базу не ходим
+        Car selectedCar = availableCars.stream()
+                .filter(car -> car.getId() == carId)
+                .findFirst()
+                .orElse(null);
+        if (selectedCar == null) {
             System.out.println("Car not available.");
             return;
         }
@@ -61,20 +101,24 @@ public class RentalController {
         LocalDate startDate = getDate("Start Date (YYYY-MM-DD): ", false);
         LocalDate endDate = getDate("End Date (YYYY-MM-DD): ", true);
 
-        if (endDate == null || !endDate.isAfter(startDate)) {
-            System.out.println("End date must be after start date.");
-            return;
-        }
-
-        if (!rentalRepository.isCarAvailableForDates(carId, startDate, endDate)) {
-            System.out.println("Car is not available for the selected dates.");
+        try {
+            if (!rentalService.isCarAvailable(carId, startDate, endDate)) {
+                System.out.println("Car is not available for the selected dates.");
+                return;
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + ".");
             return;
         }
 
-        long days = endDate.toEpochDay() - startDate.toEpochDay() + 1;
+        long days = RentalService.countDays(startDate, endDate);
         double totalPrice = selectedCar.getDailyPrice() * days;
 
         User currentUser = authService.getCurrentUser();
+        if (currentUser == null) {
+            System.out.println("Your session has expired. Please login again.");
+            return;
+        }
         String customerName, customerEmail;
 
         System.out.println("\nUsing your account information:");
@@ -106,13 +150,23 @@ public class RentalController {
             return;
         }
 
-        Rental rental = new Rental(carId, currentUser.getId(), customerName, customerEmail,
-                startDate, endDate, totalPrice);
-        rentalRepository.createRental(rental);
-
-        carRepository.updateCarAvailability(carId, false);
-
-        System.out.println("Rental created successfully! Rental ID: " + rental.getId());
+        RentalOutcome outcome = rentalService.createRental(currentUser, carId, startDate, endDate,
+                customerName, customerEmail);
+
+        switch (outcome.getResult()) {
+            case BOOKED:
+                System.out.println("Rental created successfully! Rental ID: " + outcome.getRental().getId());
+                break;
+            case DATES_TAKEN:
+                System.out.println("Sorry, the car was just booked for these dates by another customer.");
+                break;
+            case CAR_NOT_FOUND:
+            case CAR_UNAVAILABLE:
+                System.out.println("Car not available.");
+                break;
+            default:
+                System.out.println("Rental could not be created. Please try again.");
+        }
     }
 
     public void displayAllRentals() {
@@ -121,44 +175,87 @@ public class RentalController {
             return;
         }
 
-        List<Rental> rentals = rentalRepository.getAllRentalsWithDetails();
-
         System.out.println("\n=== All Rentals (With Details) ===");
         System.out.printf("%-5s %-20s %-25s %-20s %-12s %-12s %-10s %-10s%n",
                 "ID", "Customer", "Email", "Car", "Start Date", "End Date", "Price", "Status");
         System.out.println("-------------------------------------------------------------------------------------------------------------------");
 
-        for (Rental rental : rentals) {
-            String carInfo = rental.getCarBrand() + " " + rental.getCarModel() +
-                    " (" + rental.getCarLicensePlate() + ")";
+        // Печатаем строки по мере чтения курсора, не собирая всю историю в память
+        try (Stream<Rental> rentals = rentalRepository.streamAllRentalsWithDetails()) {
+            rentals.forEach(this::printRentalWithDetails);
+        }
+    }
 
-            System.out.printf("%-5d %-20s %-25s %-20s %-12s %-12s $%-9.2f %-10s%n",
-                    rental.getId(),
-                    rental.getCustomerName(),
-                    rental.getCustomerEmail(),
-                    carInfo,
-                    rental.getStartDate(),
-                    rental.getEndDate(),
-                    rental.getTotalPrice(),
-                    rental.getStatus());
+    // Постраничный просмотр аренд: стоимость любой страницы как у первой
+    public void browseAllRentals() {
+        if (!authService.canViewAllRentals()) {
+            displayUserRentals();
+            return;
+        }
+
+        Page<Rental> page = rentalRepository.getRentalsPageAfter(null, PAGE_SIZE);
+        int pageNumber = 1;
+
+        while (true) {
+            System.out.println("\n=== All Rentals (Page " + pageNumber + ") ===");
+            System.out.printf("%-5s %-20s %-25s %-20s %-12s %-12s %-10s %-10s%n",
+                    "ID", "Customer", "Email", "Car", "Start Date", "End Date", "Price", "Status");
+            System.out.println("-------------------------------------------------------------------------------------------------------------------");
+
+            if (page.getItems().isEmpty()) {
+                System.out.println("No rentals on this page.");
+            }
+            for (Rental rental : page.getItems()) {
+                printRentalWithDetails(rental);
+            }
+
+            System.out.print("\n" + (page.hasNext() ? "[n] Next  " : "") +
+                    (page.hasPrevious() ? "[p] Previous  " : "") + "[q] Back: ");
+            String input = scanner.nextLine().trim().toLowerCase();
+
+            if (input.equals("n") && page.hasNext()) {
+                page = rentalRepository.getRentalsPageAfter(page.getNextCursor(), PAGE_SIZE);
+                pageNumber++;
+            } else if (input.equals("p") && page.hasPrevious()) {
+                page = rentalRepository.getRentalsPageBefore(page.getPreviousCursor(), PAGE_SIZE);
+                pageNumber--;
+            } else if (input.equals("q")) {
+                return;
+            } else {
+                System.out.println("Invalid option.");
+            }
         }
     }
 
+    private void printRentalWithDetails(Rental rental) {
+        String carInfo = rental.getCarBrand() + " " + rental.getCarModel() +
+                " (" + rental.getCarLicensePlate() + ")";
+
+        System.out.printf("%-5d %-20s %-25s %-20s %-12s %-12s $%-9.2f %-10s%n",
+                rental.getId(),
+                rental.getCustomerName(),
+                rental.getCustomerEmail(),
+                carInfo,
+                rental.getStartDate(),
+                rental.getEndDate(),
+                rental.getTotalPrice(),
+                rental.getStatus());
+    }
+
     public void displayUserRentals() {
-        if (!authService.isLoggedIn()) {
+        User currentUser = authService.getCurrentUser();
+        if (currentUser == null) {
             System.out.println("Please login to view your rentals.");
             return;
         }
-
-        User currentUser = authService.getCurrentUser();
-        List<Rental> rentals = rentalRepository.getRentalsByUser(currentUser.getId());
+        List<RentalSummary> rentals = rentalHistoryCache.getRentalsByUser(currentUser.getId());
 
         System.out.println("\n=== Your Rentals ===");
         System.out.printf("%-5s %-20s %-12s %-12s %-10s %-10s%n",
                 "ID", "Car", "Start Date", "End Date", "Price", "Status");
         System.out.println("---------------------------------------------------------------------");
 
-        for (Rental rental : rentals) {
+        for (RentalSummary rental : rentals) {
             String carInfo = rental.getCarBrand() + " " + rental.getCarModel();
 
             System.out.printf("%-5d %-20s %-12s %-12s $%-9.2f %-10s%n",
@@ -180,8 +277,12 @@ public class RentalController {
         System.out.print("\nSearch rentals (customer name, email, license plate, or username): ");
         String searchTerm = scanner.nextLine();
 
-        List<Rental> results = rentalRepository.searchRentals(searchTerm);
+        List<Rental> results = rentalSearchIndex.search(searchTerm, SEARCH_LIMIT);
 
+        if (!rentalSearchIndex.isLoaded()) {
+            System.out.println("Rental search is temporarily unavailable. Please try again later.");
+            return;
+        }
         if (results.isEmpty()) {
             System.out.println("No rentals found matching: '" + searchTerm + "'");
             return;
@@ -205,7 +306,12 @@ public class RentalController {
                     rental.getTotalPrice());
         }
 
-        System.out.println("\nFound " + results.size() + " rental(s) matching '" + searchTerm + "'");
+        if (results.size() == SEARCH_LIMIT) {
+            System.out.println("\nShowing the " + SEARCH_LIMIT + " most recent rentals matching '" + searchTerm
+                    + "'. Refine the search to see older ones.");
+        } else {
+            System.out.println("\nFound " + results.size() + " rental(s) matching '" + searchTerm + "'");
+        }
     }
 
     public void showActiveRentals() {
@@ -214,8 +320,10 @@ public class RentalController {
             return;
         }
 
-        List<Rental> activeRentals = rentalRepository.getActiveRentals();
+        printActiveRentals(rentalRepository.getActiveRentals());
+    }
 
+    private void printActiveRentals(List<Rental> activeRentals) {
         if (activeRentals.isEmpty()) {
             System.out.println("No active rentals.");
             return;
@@ -245,8 +353,31 @@ public class RentalController {
             return;
         }
 
-        List<Rental> overdueRentals = rentalRepository.getOverdueRentals();
+        printOverdueRentals(overdueTracker.getOverdueRentals());
+    }
+
+    // Брони, принятые в журнал, но отвергнутые при переносе в базу; они сохранены как CANCELLED
+    private void printRejectedRentals(List<Rental> rejectedRentals) {
+        if (rejectedRentals.isEmpty()) {
+            return;
+        }
+
+        System.out.println("\n=== Rejected Bookings ===");
+        System.out.printf("%-5s %-20s %-20s %-12s %-12s%n",
+                "ID", "Customer", "Car", "Start Date", "End Date");
+        System.out.println("-------------------------------------------------------------------------");
 
+        for (Rental rental : rejectedRentals) {
+            System.out.printf("%-5d %-20s %-20s %-12s %-12s%n",
+                    rental.getId(),
+                    rental.getCustomerName(),
+                    rental.getCarBrand() + " " + rental.getCarModel(),
+                    rental.getStartDate(),
+                    rental.getEndDate());
+        }
+    }
+
+    private void printOverdueRentals(List<OverdueRental> overdueRentals) {
         if (overdueRentals.isEmpty()) {
             System.out.println("No overdue rentals.");
             return;
@@ -259,7 +390,7 @@ public class RentalController {
 
         LocalDate today = LocalDate.now();
 
-        for (Rental rental : overdueRentals) {
+        for (OverdueRental rental : overdueRentals) {
             String carInfo = rental.getCarBrand() + " " + rental.getCarModel();
             long daysOverdue = today.toEpochDay() - rental.getEndDate().toEpochDay();
 
@@ -282,7 +413,63 @@ public class RentalController {
             return;
         }
 
-        rentalRepository.printRentalStatistics();
+        printRentalStatistics(rentalStatisticsService.getStatistics());
+        System.out.println("\nRental history " + rentalHistoryCache.getMetrics());
+    }
+
+    private void printRentalStatistics(RentalStatistics stats) {
+        if (stats == null) {
+            System.out.println("Rental statistics are not available right now.");
+            return;
+        }
+        if (stats.isEmpty()) {
+            System.out.println("No rentals in database.");
+            return;
+        }
+
+        System.out.println("\n=== Rental Statistics ===");
+        System.out.println("Total Rentals: " + stats.getTotalRentals());
+        System.out.println("Active Rentals: " + stats.getRentalsWithStatus("ACTIVE"));
+        System.out.println("Completed Rentals: " + stats.getRentalsWithStatus("COMPLETED"));
+        System.out.printf("Total Revenue: $%.2f\n", stats.getTotalRevenue());
+        System.out.printf("Average Rental Price: $%.2f\n", stats.getAverageRentalPrice());
+
+        System.out.println("\n=== Monthly Statistics ===");
+        for (RentalStatistics.MonthlyRevenue month : stats.getMonthly()) {
+            System.out.printf("%-15s: %d rentals, $%.2f revenue\n",
+                    month.getMonth(), month.getRentals(), month.getRevenue());
+        }
+    }
+
+    // Активные, просроченные аренды и статистика одним параллельным запросом
+    public void showStaffDashboard() {
+        if (!authService.canViewAllRentals()) {
+            System.out.println("Access denied. Staff role required.");
+            return;
+        }
+
+        StaffDashboard.Snapshot dashboard;
+        try {
+            dashboard = staffDashboard.load().get(DASHBOARD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException | TimeoutException e) {
+            System.out.println("Error loading staff dashboard: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("\n=== Staff Dashboard ===");
+        System.out.println("Available Cars: " + dashboard.getAvailableCars());
+        System.out.println("Customers: " + dashboard.getCustomers());
+        System.out.println("Active Rentals: " + dashboard.getActiveRentals().size());
+        System.out.println("Overdue Rentals: " + dashboard.getOverdueRentals().size());
+        System.out.println("Loaded in " + dashboard.getLoadMillis() + " ms");
+
+        printActiveRentals(dashboard.getActiveRentals());
+        printOverdueRentals(dashboard.getOverdueRentals());
+        printRejectedRentals(dashboard.getRejectedRentals());
+        printRentalStatistics(dashboard.getStatistics());
     }
 
     public void completeRental() {
@@ -293,16 +480,43 @@ public class RentalController {
 
         displayAllRentals();
 
-        System.out.print("\nEnter Rental ID to complete: ");
-        int rentalId = Integer.parseInt(scanner.nextLine());
+        System.out.print("\nEnter Rental ID(s) to complete (comma-separated): ");
+        List<Integer> rentalIds = new ArrayList<>();
+        for (String part : scanner.nextLine().split("[,\\s]+")) {
+            if (!part.isEmpty()) {
+                rentalIds.add(Integer.parseInt(part));
+            }
+        }
+        if (rentalIds.isEmpty()) {
+            System.out.println("No rental IDs entered.");
+            return;
+        }
 
-        rentalRepository.updateRentalStatus(rentalId, "COMPLETED");
+        BulkStatusUpdate update = rentalService.completeRentals(rentalIds);
+        if (rentalIds.size() == 1) {
+            StatusUpdateOutcome outcome = update.getOutcome(rentalIds.get(0));
+            if (outcome == StatusUpdateOutcome.UPDATED || outcome == StatusUpdateOutcome.UNCHANGED) {
+                System.out.println("Rental completed successfully!");
+            } else if (outcome == StatusUpdateOutcome.NOT_FOUND) {
+                System.out.println("Rental not found.");
+            } else {
+                System.out.println("Rental could not be completed. Please try again.");
+            }
+            return;
+        }
 
-        System.out.println("Rental completed successfully!");
+        update.getOutcomes().forEach((rentalId, outcome) ->
+                System.out.printf("%-5d %s%n", rentalId, outcome));
+        System.out.println("\nCompleted: " + update.count(StatusUpdateOutcome.UPDATED) +
+                ", already completed: " + update.count(StatusUpdateOutcome.UNCHANGED) +
+                ", not found: " + update.count(StatusUpdateOutcome.NOT_FOUND) +
+                ", failed: " + update.count(StatusUpdateOutcome.FAILED) +
+                ", cars freed: " + update.getFreedCarIds().size());
     }
 
     public void cancelRental() {
-        if (!authService.isLoggedIn()) {
+        User currentUser = authService.getCurrentUser();
+        if (currentUser == null) {
             System.out.println("Please login to cancel a rental.");
             return;
         }
@@ -312,8 +526,11 @@ public class RentalController {
         System.out.print("\nEnter Rental ID to cancel: ");
         int rentalId = Integer.parseInt(scanner.nextLine());
 
-        rentalRepository.updateRentalStatus(rentalId, "CANCELLED");
-        System.out.println("Rental cancelled successfully!");
+        if (rentalService.cancelRental(currentUser, rentalId)) {
+            System.out.println("Rental cancelled successfully!");
+        } else {
+            System.out.println("Rental not found.");
+        }
     }
 
     public void calculateRentalCost() {
@@ -322,7 +539,7 @@ public class RentalController {
         System.out.print("Car ID: ");
         int carId = Integer.parseInt(scanner.nextLine());
 
-        Car car = carRepository.getCarById(carId);
+        Car car = carCache.getCarById(carId);
         if (car == null) {
             System.out.println("Car not found!");
             return;
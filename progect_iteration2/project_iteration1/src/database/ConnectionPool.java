@@ -0,0 +1,339 @@
+package database;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+public class ConnectionPool implements DataSource {
+    // Соединение, которое вернули в пул совсем недавно, не проверяем повторно
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+    private final long startedAt = System.currentTimeMillis();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis,
+                          int validationTimeoutSeconds, int statementCacheSize, long housekeepingPeriodMillis) {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep,
+                housekeepingPeriodMillis, housekeepingPeriodMillis, TimeUnit.MILLISECONDS);
+
+        fillToMinimum();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis +
+                        " ms waiting for a database connection (active=" + active.get() + ", max=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeValidConnection(waitStart);
+            recordWait(System.nanoTime() - waitStart);
+            active.incrementAndGet();
+            borrows.increment();
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pool is bound to a single set of credentials");
+    }
+
+    private PooledConnection takeValidConnection(long waitStart) throws SQLException {
+        long deadline = waitStart + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+
+        while (true) {
+            PooledConnection pooled = idle.pollFirst();
+            if (pooled != null) {
+                if (isUsable(pooled)) {
+                    return pooled;
+                }
+                destroy(pooled);
+                continue;
+            }
+
+            if (reserveSlot(maxSize)) {
+                return createConnection();
+            }
+
+            // Все слоты заняты соединениями, которые вот-вот вернутся в очередь
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                timeouts.increment();
+                throw new SQLException("Timed out waiting for an idle database connection");
+            }
+            try {
+                pooled = idle.pollFirst(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            if (pooled != null) {
+                if (isUsable(pooled)) {
+                    return pooled;
+                }
+                destroy(pooled);
+            }
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.currentTimeMillis();
+        if (pooled.isExpired(maxLifetimeMillis, now)) {
+            return false;
+        }
+        if (now - pooled.getLastUsedAt() < VALIDATION_BYPASS_MILLIS) {
+            return true;
+        }
+        try {
+            return pooled.getPhysical().isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean reserveSlot(int limit) {
+        while (true) {
+            int current = total.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (total.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        try {
+            Connection physical = DriverManager.getConnection(url, user, password);
+            created.increment();
+            return new PooledConnection(this, physical, statementCacheSize);
+        } catch (SQLException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    void release(PooledConnection pooled) {
+        active.decrementAndGet();
+        try {
+            if (closed || pooled.isExpired(maxLifetimeMillis, System.currentTimeMillis())
+                    || pooled.getPhysical().isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            pooled.reset();
+            pooled.touch();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            System.out.println("Discarding broken connection: " + e.getMessage());
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        total.decrementAndGet();
+        destroyed.increment();
+        pooled.closePhysical();
+    }
+
+    void recordStatementHit() {
+        statementHits.increment();
+    }
+
+    void recordStatementMiss() {
+        statementMisses.increment();
+    }
+
+    void recordStatementEviction() {
+        statementEvictions.increment();
+    }
+
+    private void recordWait(long nanos) {
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // Выкидываем просроченные и лишние простаивающие соединения, затем добираем до minSize
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        for (PooledConnection pooled : idle.toArray(new PooledConnection[0])) {
+            boolean expired = pooled.isExpired(maxLifetimeMillis, now);
+            boolean evictable = pooled.isIdleTooLong(idleTimeoutMillis, now) && total.get() > minSize;
+            if ((expired || evictable) && idle.remove(pooled)) {
+                destroy(pooled);
+            }
+        }
+
+        fillToMinimum();
+    }
+
+    private void fillToMinimum() {
+        while (!closed && reserveSlot(minSize)) {
+            try {
+                idle.offerLast(createConnection());
+            } catch (SQLException e) {
+                System.out.println("Failed to open pooled connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    public PoolMetrics getMetrics() {
+        long borrowCount = borrows.sum();
+        long uptimeMillis = Math.max(1, System.currentTimeMillis() - startedAt);
+        double avgWaitMillis = borrowCount == 0 ? 0 : waitNanos.sum() / 1_000_000.0 / borrowCount;
+
+        return new PoolMetrics(
+                total.get(),
+                active.get(),
+                idle.size(),
+                permits.getQueueLength(),
+                maxSize,
+                borrowCount,
+                timeouts.sum(),
+                avgWaitMillis,
+                maxWaitNanos.get() / 1_000_000.0,
+                created.sum(),
+                destroyed.sum(),
+                created.sum() * 60_000.0 / uptimeMillis,
+                statementHits.sum(),
+                statementMisses.sum(),
+                statementEvictions.sum());
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return DriverManager.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        DriverManager.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
\ No newline at end of file
@@ -1,52 +1,70 @@
 package database;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseConnection {
     private static DatabaseConnection instance;
-    private Connection connection;
+    private ConnectionPool pool;
 
     private static final String URL = "jdbc:postgresql://localhost:5432/carsharing_db";
     private static final String USER = "postgres";
     private static final String PASSWORD = "0000";
 
+    // Настройки пула можно переопределить через -Dcarsharing.pool.*
+    private static final int MIN_POOL_SIZE = Integer.getInteger("carsharing.pool.minSize", 2);
+    private static final int MAX_POOL_SIZE = Integer.getInteger("carsharing.pool.maxSize", 10);
+    private static final long BORROW_TIMEOUT_MS = Long.getLong("carsharing.pool.borrowTimeoutMs", 5_000L);
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("carsharing.pool.idleTimeoutMs", 600_000L);
+    private static final long MAX_LIFETIME_MS = Long.getLong("carsharing.pool.maxLifetimeMs", 1_800_000L);
+    private static final int VALIDATION_TIMEOUT_SEC = Integer.getInteger("carsharing.pool.validationTimeoutSec", 2);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("carsharing.pool.statementCacheSize", 64);
+    private static final long HOUSEKEEPING_PERIOD_MS = Long.getLong("carsharing.pool.housekeepingPeriodMs", 30_000L);
+
     private DatabaseConnection() {
         try {
             Class.forName("org.postgresql.Driver");
-            this.connection = DriverManager.getConnection(URL, USER, PASSWORD);
+            this.pool = new ConnectionPool(URL, USER, PASSWORD,
+                    MIN_POOL_SIZE, MAX_POOL_SIZE,
+                    BORROW_TIMEOUT_MS, IDLE_TIMEOUT_MS, MAX_LIFETIME_MS,
+                    VALIDATION_TIMEOUT_SEC, STATEMENT_CACHE_SIZE, HOUSEKEEPING_PERIOD_MS);
             System.out.println("Database connected successfully!");
-        } catch (ClassNotFoundException | SQLException e) {
+        } catch (ClassNotFoundException e) {
             System.out.println("Database connection failed: " + e.getMessage());
         }
     }
 
-    public static DatabaseConnection getInstance() {
+    public static synchronized DatabaseConnection getInstance() {
         if (instance == null) {
             instance = new DatabaseConnection();
         }
         return instance;
     }
 
+    // Каждый вызов берёт соединение из пула; close() в try-with-resources возвращает его обратно
     public Connection getConnection() {
         try {
-            if (connection == null || connection.isClosed()) {
-                connection = DriverManager.getConnection(URL, USER, PASSWORD);
+            if (pool == null) {
+                throw new SQLException("Connection pool is not initialized");
             }
+            return pool.getConnection();
         } catch (SQLException e) {
-            System.out.println("Failed to reconnect to database: " + e.getMessage());
+            System.out.println("Failed to get database connection: " + e.getMessage());
         }
-        return connection;
+        return null;
+    }
+
+    public ConnectionPool getDataSource() {
+        return pool;
+    }
+
+    public PoolMetrics getPoolMetrics() {
+        return pool != null ? pool.getMetrics() : null;
     }
 
     public void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-            } catch (SQLException e) {
-                System.out.println("Error closing connection: " + e.getMessage());
-            }
+        if (pool != null) {
+            pool.close();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package database;
+
+public class PoolMetrics {
+    private final int totalConnections;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int waitingThreads;
+    private final int maxPoolSize;
+    private final long totalBorrows;
+    private final long borrowTimeouts;
+    private final double avgWaitMillis;
+    private final double maxWaitMillis;
+    private final long connectionsCreated;
+    private final long connectionsDestroyed;
+    private final double creationRatePerMinute;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final long statementCacheEvictions;
+
+    public PoolMetrics(int totalConnections, int activeConnections, int idleConnections,
+                       int waitingThreads, int maxPoolSize, long totalBorrows, long borrowTimeouts,
+                       double avgWaitMillis, double maxWaitMillis, long connectionsCreated,
+                       long connectionsDestroyed, double creationRatePerMinute,
+                       long statementCacheHits, long statementCacheMisses, long statementCacheEvictions) {
+        this.totalConnections = totalConnections;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.waitingThreads = waitingThreads;
+        this.maxPoolSize = maxPoolSize;
+        this.totalBorrows = totalBorrows;
+        this.borrowTimeouts = borrowTimeouts;
+        this.avgWaitMillis = avgWaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
+        this.connectionsCreated = connectionsCreated;
+        this.connectionsDestroyed = connectionsDestroyed;
+        this.creationRatePerMinute = creationRatePerMinute;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.statementCacheEvictions = statementCacheEvictions;
+    }
+
+    public int getTotalConnections() { return totalConnections; }
+
+    public int getActiveConnections() { return activeConnections; }
+
+    public int getIdleConnections() { return idleConnections; }
+
+    public int getWaitingThreads() { return waitingThreads; }
+
+    public int getMaxPoolSize() { return maxPoolSize; }
+
+    public long getTotalBorrows() { return totalBorrows; }
+
+    public long getBorrowTimeouts() { return borrowTimeouts; }
+
+    public double getAvgWaitMillis() { return avgWaitMillis; }
+
+    public double getMaxWaitMillis() { return maxWaitMillis; }
+
+    public long getConnectionsCreated() { return connectionsCreated; }
+
+    public long getConnectionsDestroyed() { return connectionsDestroyed; }
+
+    public double getCreationRatePerMinute() { return creationRatePerMinute; }
+
+    public long getStatementCacheHits() { return statementCacheHits; }
+
+    public long getStatementCacheMisses() { return statementCacheMisses; }
+
+    public long getStatementCacheEvictions() { return statementCacheEvictions; }
+
+    public double getStatementCacheHitRatio() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0 : (double) statementCacheHits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Pool[total=%d, active=%d, idle=%d, waiting=%d, max=%d, borrows=%d, timeouts=%d, " +
+                        "avgWait=%.2fms, maxWait=%.2fms, created=%d, destroyed=%d, creationRate=%.2f/min, " +
+                        "stmtCache[hits=%d, misses=%d, evictions=%d, hitRatio=%.2f]]",
+                totalConnections, activeConnections, idleConnections, waitingThreads, maxPoolSize,
+                totalBorrows, borrowTimeouts, avgWaitMillis, maxWaitMillis,
+                connectionsCreated, connectionsDestroyed, creationRatePerMinute,
+                statementCacheHits, statementCacheMisses, statementCacheEvictions, getStatementCacheHitRatio());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,121 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Физическое соединение из пула. Репозиториям отдаётся прокси, у которого close() возвращает соединение в пул
+class PooledConnection {
+    private final ConnectionPool pool;
+    private final Connection physical;
+    private final StatementCache statementCache;
+    private final long createdAt;
+    private volatile long lastUsedAt;
+
+    PooledConnection(ConnectionPool pool, Connection physical, int statementCacheSize) {
+        this.pool = pool;
+        this.physical = physical;
+        this.statementCache = new StatementCache(pool, physical, statementCacheSize);
+        this.createdAt = System.currentTimeMillis();
+        this.lastUsedAt = createdAt;
+    }
+
+    Connection getPhysical() { return physical; }
+
+    long getCreatedAt() { return createdAt; }
+
+    long getLastUsedAt() { return lastUsedAt; }
+
+    void touch() { lastUsedAt = System.currentTimeMillis(); }
+
+    boolean isExpired(long maxLifetimeMillis, long now) {
+        return maxLifetimeMillis > 0 && now - createdAt >= maxLifetimeMillis;
+    }
+
+    boolean isIdleTooLong(long idleTimeoutMillis, long now) {
+        return idleTimeoutMillis > 0 && now - lastUsedAt >= idleTimeoutMillis;
+    }
+
+    // Сбрасывает состояние, которое мог оставить предыдущий владелец
+    void reset() throws SQLException {
+        if (!physical.getAutoCommit()) {
+            physical.rollback();
+            physical.setAutoCommit(true);
+        }
+        physical.clearWarnings();
+    }
+
+    void closePhysical() {
+        statementCache.clear();
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            System.out.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    Connection newHandle() {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Handle());
+    }
+
+    // Один Handle на одно заимствование, поэтому повторный close() старой ссылки не вернёт соединение дважды
+    private class Handle implements InvocationHandler {
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "prepareStatement":
+                    if (!closed && isCacheable(method)) {
+                        int autoGeneratedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                        return statementCache.prepare((Connection) proxy, (String) args[0], autoGeneratedKeys);
+                    }
+                    break;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection is already returned to the pool");
+            }
+
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        // Кэшируем только prepareStatement(sql) и prepareStatement(sql, autoGeneratedKeys)
+        private boolean isCacheable(Method method) {
+            Class<?>[] types = method.getParameterTypes();
+            return types.length == 1 || (types.length == 2 && types[1] == int.class);
+        }
+    }
+}
\ No newline at end of file
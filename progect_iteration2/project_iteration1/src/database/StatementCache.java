@@ -0,0 +1,163 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// LRU-кэш PreparedStatement одного физического соединения, ключ - текст SQL.
+// Повторное использование того же объекта позволяет драйверу перейти на серверный prepare
+class StatementCache {
+    private final ConnectionPool pool;
+    private final Connection physical;
+    private final int maxSize;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    StatementCache(ConnectionPool pool, Connection physical, int maxSize) {
+        this.pool = pool;
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                CachedStatement evicted = eldest.getValue();
+                // Занятый statement закроется, когда его вернут
+                evicted.evicted = true;
+                if (!evicted.inUse) {
+                    evicted.closeQuietly();
+                }
+                pool.recordStatementEviction();
+                return true;
+            }
+        };
+    }
+
+    PreparedStatement prepare(Connection handle, String sql, int autoGeneratedKeys) throws SQLException {
+        if (maxSize <= 0) {
+            return physical.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? sql + "\u0000keys" : sql;
+        CachedStatement cached = statements.get(key);
+
+        if (cached != null && !cached.inUse && !cached.statement.isClosed()) {
+            pool.recordStatementHit();
+        } else {
+            pool.recordStatementMiss();
+            PreparedStatement statement = physical.prepareStatement(sql, autoGeneratedKeys);
+            if (cached != null && cached.inUse) {
+                // Тот же SQL уже открыт на этом соединении (вложенный вызов) - отдаём некэшируемый
+                return statement;
+            }
+            cached = new CachedStatement(statement);
+            statements.put(key, cached);
+        }
+
+        cached.inUse = true;
+        return cached.newHandle(handle);
+    }
+
+    void clear() {
+        for (CachedStatement cached : statements.values()) {
+            cached.closeQuietly();
+        }
+        statements.clear();
+    }
+
+    private static class CachedStatement {
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        void release() {
+            inUse = false;
+            if (evicted) {
+                closeQuietly();
+                return;
+            }
+            try {
+                // Незакрытый вызывающим ResultSet не должен достаться следующему владельцу
+                ResultSet open = statement.getResultSet();
+                if (open != null) {
+                    open.close();
+                }
+                statement.clearParameters();
+                statement.clearWarnings();
+                statement.setFetchSize(0);
+            } catch (SQLException e) {
+                evicted = true;
+                closeQuietly();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing cached statement: " + e.getMessage());
+            }
+        }
+
+        PreparedStatement newHandle(Connection connectionHandle) {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new Handle(connectionHandle));
+        }
+
+        private class Handle implements InvocationHandler {
+            private final Connection connectionHandle;
+            private boolean closed;
+
+            Handle(Connection connectionHandle) {
+                this.connectionHandle = connectionHandle;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            release();
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed || statement.isClosed();
+                    case "getConnection":
+                        return connectionHandle;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        break;
+                }
+
+                if (closed) {
+                    throw new SQLException("Statement is closed");
+                }
+
+                try {
+                    return method.invoke(statement, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
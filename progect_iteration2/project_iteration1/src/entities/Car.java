@@ -25,6 +25,18 @@ public class Car {
         this.isAvailable = true;
     }
 
+    public Car(Car other) {
+        this.id = other.id;
+        this.brand = other.brand;
+        this.model = other.model;
+        this.licensePlate = other.licensePlate;
+        this.year = other.year;
+        this.categoryId = other.categoryId;
+        this.dailyPrice = other.dailyPrice;
+        this.isAvailable = other.isAvailable;
+        this.categoryName = other.categoryName;
+    }
+
     // геттеры и сеттеры
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
@@ -12,6 +12,12 @@ public class Category {
         this.description = description;
     }
 
+    public Category(Category other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.description = other.description;
+    }
+
     // геттеры и сеттеры
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
@@ -0,0 +1,39 @@
+package entities;
+
+import java.time.LocalDate;
+
+// Строка списка просрочек: аренда, клиент для связи и машина
+public class OverdueRental {
+    private final int id;
+    private final String customerName;
+    private final String customerEmail;
+    private final String carBrand;
+    private final String carModel;
+    private final LocalDate endDate;
+    private final double totalPrice;
+
+    public OverdueRental(int id, String customerName, String customerEmail, String carBrand, String carModel,
+                         LocalDate endDate, double totalPrice) {
+        this.id = id;
+        this.customerName = customerName;
+        this.customerEmail = customerEmail;
+        this.carBrand = carBrand;
+        this.carModel = carModel;
+        this.endDate = endDate;
+        this.totalPrice = totalPrice;
+    }
+
+    public int getId() { return id; }
+
+    public String getCustomerName() { return customerName; }
+
+    public String getCustomerEmail() { return customerEmail; }
+
+    public String getCarBrand() { return carBrand; }
+
+    public String getCarModel() { return carModel; }
+
+    public LocalDate getEndDate() { return endDate; }
+
+    public double getTotalPrice() { return totalPrice; }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package entities;
+
+// Отдельные операции системы; у каждой свой бит в маске прав роли
+public enum Permission {
+    VIEW_CARS,
+    RENT_CARS,
+    VIEW_OWN_RENTALS,
+    CANCEL_OWN_RENTALS,
+    VIEW_ALL_RENTALS,
+    MANAGE_CARS,
+    MANAGE_RENTALS,
+    VIEW_STATISTICS,
+    IMPORT_CARS,
+    MANAGE_USERS;
+
+    private final long mask = 1L << ordinal();
+
+    public long mask() { return mask; }
+
+    public static long maskOf(Permission... permissions) {
+        long mask = 0;
+        for (Permission permission : permissions) {
+            mask |= permission.mask;
+        }
+        return mask;
+    }
+}
\ No newline at end of file
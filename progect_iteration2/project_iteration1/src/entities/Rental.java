@@ -1,6 +1,7 @@
 package entities;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 public class Rental {
     private int id;
@@ -12,6 +13,7 @@ public class Rental {
     private LocalDate endDate;
     private double totalPrice;
     private String status;
+    private LocalDateTime createdAt;
 
     private String carBrand;
     private String carModel;
@@ -32,6 +34,23 @@ public class Rental {
         this.status = "PENDING";
     }
 
+    public Rental(Rental other) {
+        this.id = other.id;
+        this.carId = other.carId;
+        this.userId = other.userId;
+        this.customerName = other.customerName;
+        this.customerEmail = other.customerEmail;
+        this.startDate = other.startDate;
+        this.endDate = other.endDate;
+        this.totalPrice = other.totalPrice;
+        this.status = other.status;
+        this.createdAt = other.createdAt;
+        this.carBrand = other.carBrand;
+        this.carModel = other.carModel;
+        this.carLicensePlate = other.carLicensePlate;
+        this.username = other.username;
+    }
+
     // геттеры и сеттеры
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
@@ -60,6 +79,9 @@ public class Rental {
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
 
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
     public String getCarBrand() { return carBrand; }
     public void setCarBrand(String carBrand) { this.carBrand = carBrand; }
 
@@ -0,0 +1,113 @@
+package entities;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collector;
+
+// Неизменяемый результат статистики по арендам; месяцы различаются с учётом года
+public class RentalStatistics {
+    private final long totalRentals;
+    private final Map<String, Long> rentalsByStatus;
+    private final double totalRevenue;
+    private final List<MonthlyRevenue> monthly;
+
+    public RentalStatistics(long totalRentals, Map<String, Long> rentalsByStatus,
+                            double totalRevenue, List<MonthlyRevenue> monthly) {
+        this.totalRentals = totalRentals;
+        this.rentalsByStatus = Collections.unmodifiableMap(new HashMap<>(rentalsByStatus));
+        this.totalRevenue = totalRevenue;
+        List<MonthlyRevenue> sorted = new ArrayList<>(monthly);
+        sorted.sort((a, b) -> a.getMonth().compareTo(b.getMonth()));
+        this.monthly = Collections.unmodifiableList(sorted);
+    }
+
+    public long getTotalRentals() { return totalRentals; }
+
+    public long getRentalsWithStatus(String status) {
+        return rentalsByStatus.getOrDefault(status, 0L);
+    }
+
+    public Map<String, Long> getRentalsByStatus() { return rentalsByStatus; }
+
+    public double getTotalRevenue() { return totalRevenue; }
+
+    public double getAverageRentalPrice() {
+        return totalRentals == 0 ? 0 : totalRevenue / totalRentals;
+    }
+
+    public List<MonthlyRevenue> getMonthly() { return monthly; }
+
+    public boolean isEmpty() { return totalRentals == 0; }
+
+    // Один проход по уже загруженным арендам
+    public static RentalStatistics of(Collection<Rental> rentals) {
+        return rentals.stream().collect(collector());
+    }
+
+    public static Collector<Rental, ?, RentalStatistics> collector() {
+        return Collector.of(
+                Accumulator::new,
+                Accumulator::add,
+                Accumulator::merge,
+                Accumulator::finish);
+    }
+
+    public static class MonthlyRevenue {
+        private final YearMonth month;
+        private final long rentals;
+        private final double revenue;
+
+        public MonthlyRevenue(YearMonth month, long rentals, double revenue) {
+            this.month = month;
+            this.rentals = rentals;
+            this.revenue = revenue;
+        }
+
+        public YearMonth getMonth() { return month; }
+
+        public long getRentals() { return rentals; }
+
+        public double getRevenue() { return revenue; }
+    }
+
+    private static class Accumulator {
+        private long total;
+        private double revenue;
+        private final Map<String, Long> byStatus = new HashMap<>();
+        private final Map<YearMonth, double[]> byMonth = new TreeMap<>();
+
+        void add(Rental rental) {
+            total++;
+            revenue += rental.getTotalPrice();
+            byStatus.merge(rental.getStatus(), 1L, Long::sum);
+
+            double[] month = byMonth.computeIfAbsent(YearMonth.from(rental.getStartDate()), m -> new double[2]);
+            month[0]++;
+            month[1] += rental.getTotalPrice();
+        }
+
+        Accumulator merge(Accumulator other) {
+            total += other.total;
+            revenue += other.revenue;
+            other.byStatus.forEach((status, count) -> byStatus.merge(status, count, Long::sum));
+            other.byMonth.forEach((month, values) -> {
+                double[] mine = byMonth.computeIfAbsent(month, m -> new double[2]);
+                mine[0] += values[0];
+                mine[1] += values[1];
+            });
+            return this;
+        }
+
+        RentalStatistics finish() {
+            List<MonthlyRevenue> monthly = new ArrayList<>();
+            byMonth.forEach((month, values) -> monthly.add(new MonthlyRevenue(month, (long) values[0], values[1])));
+            return new RentalStatistics(total, byStatus, revenue, monthly);
+        }
+    }
+}
\ No newline at end of file
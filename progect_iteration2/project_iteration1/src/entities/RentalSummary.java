@@ -0,0 +1,47 @@
+package entities;
+
+import java.time.LocalDate;
+
+// Строка истории аренд клиента: только то, что показывает экран "Мои аренды"
+public class RentalSummary {
+    private final int id;
+    private final int carId;
+    private final String carBrand;
+    private final String carModel;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final double totalPrice;
+    private final String status;
+
+    public RentalSummary(int id, int carId, String carBrand, String carModel,
+                         LocalDate startDate, LocalDate endDate, double totalPrice, String status) {
+        this.id = id;
+        this.carId = carId;
+        this.carBrand = carBrand;
+        this.carModel = carModel;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.totalPrice = totalPrice;
+        this.status = status;
+    }
+
+    public int getId() { return id; }
+
+    public int getCarId() { return carId; }
+
+    public String getCarBrand() { return carBrand; }
+
+    public String getCarModel() { return carModel; }
+
+    public LocalDate getStartDate() { return startDate; }
+
+    public LocalDate getEndDate() { return endDate; }
+
+    public double getTotalPrice() { return totalPrice; }
+
+    public String getStatus() { return status; }
+
+    public RentalSummary withStatus(String status) {
+        return new RentalSummary(id, carId, carBrand, carModel, startDate, endDate, totalPrice, status);
+    }
+}
\ No newline at end of file
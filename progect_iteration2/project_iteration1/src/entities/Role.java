@@ -0,0 +1,48 @@
+package entities;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Роли по возрастанию уровня; каждая роль получает права всех ролей ниже.
+// Маски считаются один раз при загрузке класса, проверка права - одно побитовое И
+public enum Role {
+    CUSTOMER(Permission.maskOf(Permission.VIEW_CARS, Permission.RENT_CARS,
+            Permission.VIEW_OWN_RENTALS, Permission.CANCEL_OWN_RENTALS)),
+    STAFF(Permission.maskOf(Permission.VIEW_ALL_RENTALS, Permission.MANAGE_CARS,
+            Permission.MANAGE_RENTALS, Permission.VIEW_STATISTICS)),
+    MANAGER(Permission.maskOf(Permission.IMPORT_CARS)),
+    ADMIN(Permission.maskOf(Permission.MANAGE_USERS));
+
+    private static final Map<String, Role> BY_NAME = new HashMap<>();
+
+    static {
+        long inherited = 0;
+        for (Role role : values()) {
+            inherited |= role.ownPermissions;
+            role.permissions = inherited;
+            BY_NAME.put(role.name(), role);
+        }
+    }
+
+    private final long ownPermissions;
+    private long permissions;
+
+    Role(long ownPermissions) {
+        this.ownPermissions = ownPermissions;
+    }
+
+    public long permissions() { return permissions; }
+
+    public boolean grants(Permission permission) {
+        return (permissions & permission.mask()) != 0;
+    }
+
+    public boolean isAtLeast(Role other) {
+        return ordinal() >= other.ordinal();
+    }
+
+    // null для неизвестного имени
+    public static Role fromName(String name) {
+        return name != null ? BY_NAME.get(name) : null;
+    }
+}
\ No newline at end of file
@@ -7,6 +7,8 @@ public class User {
     private String email;
     private String fullName;
     private String role;
+    // Разобранная роль, чтобы проверки прав не сравнивали строки; null для неизвестной роли
+    private Role roleType;
 
     public User() {}
 
@@ -15,7 +17,17 @@ public class User {
         this.password = password;
         this.email = email;
         this.fullName = fullName;
-        this.role = role;
+        setRole(role);
+    }
+
+    public User(User other) {
+        this.id = other.id;
+        this.username = other.username;
+        this.password = other.password;
+        this.email = other.email;
+        this.fullName = other.fullName;
+        this.role = other.role;
+        this.roleType = other.roleType;
     }
 
     //геттеры и сеттеры
@@ -65,38 +77,39 @@ public class User {
 
     public void setRole(String role) {
         this.role = role;
+        this.roleType = Role.fromName(role);
+    }
+
+    public Role getRoleType() {
+        return roleType;
     }
 
     public boolean isAdmin() {
-        return "ADMIN".equals(role);
+        return roleType == Role.ADMIN;
     }
 
     public boolean isManager() {
-        return "MANAGER".equals(role);
+        return roleType == Role.MANAGER;
     }
 
     public boolean isStaff() {
-        return "STAFF".equals(role);
+        return roleType == Role.STAFF;
     }
 
     public boolean isCustomer() {
-        return "CUSTOMER".equals(role);
+        return roleType == Role.CUSTOMER;
     }
 
+    // Роль не ниже требуемой; неизвестная требуемая роль, как и раньше, доступна всем
     public boolean hasPermission(String requiredRole) {
-        String[] hierarchy = {"CUSTOMER", "STAFF", "MANAGER", "ADMIN"};
-        int userLevel = -1;
-        int requiredLevel = -1;
-
-        for (int i = 0; i < hierarchy.length; i++) {
-            if (hierarchy[i].equals(this.role)) {
-                userLevel = i;
-            }
-            if (hierarchy[i].equals(requiredRole)) {
-                requiredLevel = i;
-            }
+        Role required = Role.fromName(requiredRole);
+        if (required == null) {
+            return true;
         }
+        return roleType != null && roleType.isAtLeast(required);
+    }
 
-        return userLevel >= requiredLevel;
+    public boolean hasPermission(Permission permission) {
+        return roleType != null && roleType.grants(permission);
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package repositories;
+
+import entities.Car;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Неблокирующие варианты методов CarRepository; сам запрос выполняется в RepositoryExecutor
+public class AsyncCarRepository {
+    private final CarRepository carRepository;
+    private final RepositoryExecutor executor;
+
+    public AsyncCarRepository(CarRepository carRepository, RepositoryExecutor executor) {
+        this.carRepository = carRepository;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<List<Car>> getAllCarsWithCategory() {
+        return executor.submit(carRepository::getAllCarsWithCategory);
+    }
+
+    public CompletableFuture<List<Car>> getAvailableCars() {
+        return executor.submit(carRepository::getAvailableCars);
+    }
+
+    public CompletableFuture<Integer> countAvailableCars() {
+        return executor.submit(carRepository::countAvailableCars);
+    }
+
+    public CompletableFuture<List<Car>> searchCars(String searchTerm) {
+        return executor.submit(() -> carRepository.searchCars(searchTerm));
+    }
+
+    public CompletableFuture<List<Car>> getCarsByCategoryId(int categoryId) {
+        return executor.submit(() -> carRepository.getCarsByCategoryId(categoryId));
+    }
+
+    public CompletableFuture<List<Car>> getCarsByPriceRange(double minPrice, double maxPrice) {
+        return executor.submit(() -> carRepository.getCarsByPriceRange(minPrice, maxPrice));
+    }
+
+    public CompletableFuture<List<Car>> queryCars(CarQuery query) {
+        return executor.submit(() -> carRepository.queryCars(query));
+    }
+
+    public CompletableFuture<Car> getCarById(int id) {
+        return executor.submit(() -> carRepository.getCarById(id));
+    }
+
+    public CompletableFuture<Void> updateCarAvailability(int carId, boolean isAvailable) {
+        return executor.submit(() -> {
+            carRepository.updateCarAvailability(carId, isAvailable);
+            return null;
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package repositories;
+
+import entities.Rental;
+import entities.RentalStatistics;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Неблокирующие варианты методов RentalRepository; сам запрос выполняется в RepositoryExecutor
+public class AsyncRentalRepository {
+    private final RentalRepository rentalRepository;
+    private final RepositoryExecutor executor;
+
+    public AsyncRentalRepository(RentalRepository rentalRepository, RepositoryExecutor executor) {
+        this.rentalRepository = rentalRepository;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<List<Rental>> getRentalsByUser(int userId) {
+        return executor.submit(() -> rentalRepository.getRentalsByUser(userId));
+    }
+
+    public CompletableFuture<List<Rental>> searchRentals(String searchTerm) {
+        return executor.submit(() -> rentalRepository.searchRentals(searchTerm));
+    }
+
+    public CompletableFuture<List<Rental>> getActiveRentals() {
+        return executor.submit(rentalRepository::getActiveRentals);
+    }
+
+    public CompletableFuture<List<Rental>> getOverdueRentals() {
+        return executor.submit(rentalRepository::getOverdueRentals);
+    }
+
+    public CompletableFuture<List<Rental>> getJournalRejectedRentals() {
+        return executor.submit(rentalRepository::getJournalRejectedRentals);
+    }
+
+    // null внутри future, если запрос не удался
+    public CompletableFuture<RentalStatistics> getRentalStatistics() {
+        return executor.submit(rentalRepository::getRentalStatistics);
+    }
+
+    public CompletableFuture<Boolean> isCarAvailableForDates(int carId, LocalDate startDate, LocalDate endDate) {
+        return executor.submit(() -> rentalRepository.isCarAvailableForDates(carId, startDate, endDate));
+    }
+
+    public CompletableFuture<BookingResult> bookCar(Rental rental) {
+        return executor.submit(() -> rentalRepository.bookCar(rental));
+    }
+
+    public CompletableFuture<Boolean> updateRentalStatus(int rentalId, String status) {
+        return executor.submit(() -> rentalRepository.updateRentalStatus(rentalId, status));
+    }
+}
\ No newline at end of file
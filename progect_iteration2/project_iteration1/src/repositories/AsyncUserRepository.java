@@ -0,0 +1,33 @@
+package repositories;
+
+import entities.User;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+// Неблокирующие варианты методов UserRepository; сам запрос выполняется в RepositoryExecutor
+public class AsyncUserRepository {
+    private final UserRepository userRepository;
+    private final RepositoryExecutor executor;
+
+    public AsyncUserRepository(UserRepository userRepository, RepositoryExecutor executor) {
+        this.userRepository = userRepository;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Optional<User>> authenticateUser(String username, String password) {
+        return executor.submit(() -> userRepository.authenticateUser(username, password));
+    }
+
+    public CompletableFuture<List<User>> getAllUsers() {
+        return executor.submit(userRepository::getAllUsers);
+    }
+
+    public CompletableFuture<List<User>> getUsersByRole(String role) {
+        return executor.submit(() -> userRepository.getUsersByRole(role));
+    }
+
+    public CompletableFuture<Integer> countUsersByRole(String role) {
+        return executor.submit(() -> userRepository.countUsersByRole(role));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,9 @@
+package repositories;
+
+public enum BookingResult {
+    BOOKED,
+    CAR_NOT_FOUND,
+    CAR_UNAVAILABLE,
+    DATES_TAKEN,
+    FAILED
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package repositories;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// Итог массовой смены статуса: исход по каждой аренде (в порядке запроса) и освобождённые машины
+public class BulkStatusUpdate {
+    private final String status;
+    private final Map<Integer, StatusUpdateOutcome> outcomes;
+    private final List<Integer> freedCarIds;
+
+    BulkStatusUpdate(String status, Map<Integer, StatusUpdateOutcome> outcomes, List<Integer> freedCarIds) {
+        this.status = status;
+        this.outcomes = Collections.unmodifiableMap(outcomes);
+        this.freedCarIds = Collections.unmodifiableList(freedCarIds);
+    }
+
+    public String getStatus() { return status; }
+
+    public Map<Integer, StatusUpdateOutcome> getOutcomes() { return outcomes; }
+
+    public StatusUpdateOutcome getOutcome(int rentalId) {
+        return outcomes.getOrDefault(rentalId, StatusUpdateOutcome.NOT_FOUND);
+    }
+
+    public List<Integer> getFreedCarIds() { return freedCarIds; }
+
+    public long count(StatusUpdateOutcome outcome) {
+        return outcomes.values().stream().filter(o -> o == outcome).count();
+    }
+}
\ No newline at end of file
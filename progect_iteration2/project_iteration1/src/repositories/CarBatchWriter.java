@@ -0,0 +1,169 @@
+package repositories;
+
+import entities.Car;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Пакетная вставка машин на одном соединении: executeBatch каждые batchSize строк,
+// commit каждые commitInterval строк. Если пакет падает, незакоммиченные строки
+// повторяются по одной под savepoint, и в отказ уходят только сами плохие строки
+public class CarBatchWriter implements AutoCloseable {
+    private static final String INSERT_SQL = "INSERT INTO cars (brand, model, license_plate, year, " +
+            "category_id, daily_price, is_available) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @FunctionalInterface
+    public interface RejectHandler {
+        void rejected(String source, String reason);
+    }
+
+    private final Connection conn;
+    private final PreparedStatement pstmt;
+    private final int batchSize;
+    private final int commitInterval;
+    private final RejectHandler onReject;
+    private final Consumer<Car> onCommitted;
+
+    private final List<PendingCar> batch = new ArrayList<>();
+    private final List<PendingCar> uncommitted = new ArrayList<>();
+    private long inserted;
+    private boolean closed;
+
+    CarBatchWriter(Connection conn, int batchSize, int commitInterval,
+                   RejectHandler onReject, Consumer<Car> onCommitted) throws SQLException {
+        if (batchSize <= 0 || commitInterval <= 0) {
+            throw new IllegalArgumentException("Batch size and commit interval must be positive");
+        }
+        this.conn = conn;
+        this.batchSize = batchSize;
+        this.commitInterval = Math.max(commitInterval, batchSize);
+        this.onReject = onReject;
+        this.onCommitted = onCommitted;
+
+        conn.setAutoCommit(false);
+        this.pstmt = conn.prepareStatement(INSERT_SQL, new String[]{"id"});
+    }
+
+    // source - исходная строка файла, она уйдёт в отказы, если база не примет машину
+    public void add(Car car, String source) throws SQLException {
+        bind(pstmt, car);
+        pstmt.addBatch();
+        batch.add(new PendingCar(car, source));
+
+        if (batch.size() >= batchSize) {
+            flushBatch();
+        }
+        if (uncommitted.size() >= commitInterval) {
+            commit();
+        }
+    }
+
+    // Машины, уже закоммиченные в базу
+    public long getInserted() {
+        return inserted;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            try {
+                pstmt.close();
+            } finally {
+                conn.close();
+            }
+        }
+    }
+
+    private void flushBatch() throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            pstmt.executeBatch();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                for (PendingCar pending : batch) {
+                    if (keys.next()) {
+                        pending.car.setId(keys.getInt(1));
+                    }
+                }
+            }
+            uncommitted.addAll(batch);
+            batch.clear();
+        } catch (BatchUpdateException e) {
+            pstmt.clearBatch();
+            conn.rollback();
+            List<PendingCar> retry = new ArrayList<>(uncommitted);
+            retry.addAll(batch);
+            uncommitted.clear();
+            batch.clear();
+            replayOneByOne(retry);
+        }
+    }
+
+    private void replayOneByOne(List<PendingCar> rows) throws SQLException {
+        try (PreparedStatement single = conn.prepareStatement(INSERT_SQL, new String[]{"id"})) {
+            for (PendingCar pending : rows) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    bind(single, pending.car);
+                    single.executeUpdate();
+                    try (ResultSet keys = single.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            pending.car.setId(keys.getInt(1));
+                        }
+                    }
+                    conn.releaseSavepoint(savepoint);
+                    uncommitted.add(pending);
+                } catch (SQLException e) {
+                    conn.rollback(savepoint);
+                    onReject.rejected(pending.source, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void commit() throws SQLException {
+        flushBatch();
+        conn.commit();
+        inserted += uncommitted.size();
+        for (PendingCar pending : uncommitted) {
+            onCommitted.accept(pending.car);
+        }
+        uncommitted.clear();
+    }
+
+    private static void bind(PreparedStatement pstmt, Car car) throws SQLException {
+        pstmt.setString(1, car.getBrand());
+        pstmt.setString(2, car.getModel());
+        pstmt.setString(3, car.getLicensePlate());
+        pstmt.setInt(4, car.getYear());
+        pstmt.setInt(5, car.getCategoryId());
+        pstmt.setDouble(6, car.getDailyPrice());
+        pstmt.setBoolean(7, car.isAvailable());
+    }
+
+    private static class PendingCar {
+        private final Car car;
+        private final String source;
+
+        PendingCar(Car car, String source) {
+            this.car = car;
+            this.source = source;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,10 @@
+package repositories;
+
+import entities.Car;
+
+// Подписчики (индексы, кэши) получают изменения машин после успешной записи в базу
+public interface CarChangeListener {
+    void carSaved(Car car);
+
+    void carAvailabilityChanged(int carId, boolean isAvailable);
+}
\ No newline at end of file
@@ -0,0 +1,153 @@
+package repositories;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Собирает параметризованный SELECT по машинам, чтобы фильтрация и сортировка шли в базе, а не в Java
+public class CarQuery {
+    // Ровно колонки, которые читает маппер Car; описание категории ни один экран не показывает
+    private static final String BASE_SQL =
+            "SELECT c.id, c.brand, c.model, c.license_plate, c.year, c.category_id, c.daily_price, " +
+            "c.is_available, cat.name as category_name " +
+            "FROM cars c " +
+            "LEFT JOIN categories cat ON c.category_id = cat.id";
+
+    private final List<String> conditions = new ArrayList<>();
+    private final List<Object> parameters = new ArrayList<>();
+    private final List<String> orderBy = new ArrayList<>();
+    private Integer limit;
+
+    public static CarQuery cars() {
+        return new CarQuery();
+    }
+
+    public CarQuery byId(int id) {
+        conditions.add("c.id = ?");
+        parameters.add(id);
+        return this;
+    }
+
+    public CarQuery availableOnly() {
+        conditions.add("c.is_available = true");
+        return this;
+    }
+
+    public CarQuery categoryName(String categoryName) {
+        conditions.add("LOWER(cat.name) = LOWER(?)");
+        parameters.add(categoryName);
+        return this;
+    }
+
+    public CarQuery categoryId(int categoryId) {
+        conditions.add("c.category_id = ?");
+        parameters.add(categoryId);
+        return this;
+    }
+
+    public CarQuery priceBetween(double minPrice, double maxPrice) {
+        conditions.add("c.daily_price BETWEEN ? AND ?");
+        parameters.add(minPrice);
+        parameters.add(maxPrice);
+        return this;
+    }
+
+    // Подстрока без учёта регистра по марке, модели, номеру или категории
+    public CarQuery matching(String searchTerm) {
+        String pattern = "%" + escapeLike(searchTerm.toLowerCase()) + "%";
+        conditions.add("(LOWER(c.brand) LIKE ? ESCAPE '\\' " +
+                "OR LOWER(c.model) LIKE ? ESCAPE '\\' " +
+                "OR LOWER(c.license_plate) LIKE ? ESCAPE '\\' " +
+                "OR LOWER(cat.name) LIKE ? ESCAPE '\\')");
+        for (int i = 0; i < 4; i++) {
+            parameters.add(pattern);
+        }
+        return this;
+    }
+
+    // При равной цене порядок как у getAllCarsWithCategory: марка, модель
+    public CarQuery orderByPrice() {
+        orderBy.add("c.daily_price");
+        orderBy.add("c.brand");
+        orderBy.add("c.model");
+        return this;
+    }
+
+    public CarQuery orderByName() {
+        orderBy.add("c.brand");
+        orderBy.add("c.model");
+        return this;
+    }
+
+    // Keyset-пагинация по (марка, модель, id): строки строго после/до ключа
+    public CarQuery afterName(String brand, String model, int id) {
+        conditions.add("(c.brand, c.model, c.id) > (?, ?, ?)");
+        parameters.add(brand);
+        parameters.add(model);
+        parameters.add(id);
+        return this;
+    }
+
+    public CarQuery beforeName(String brand, String model, int id) {
+        conditions.add("(c.brand, c.model, c.id) < (?, ?, ?)");
+        parameters.add(brand);
+        parameters.add(model);
+        parameters.add(id);
+        return this;
+    }
+
+    public CarQuery orderByNameAndId(boolean descending) {
+        String direction = descending ? " DESC" : "";
+        orderBy.add("c.brand" + direction);
+        orderBy.add("c.model" + direction);
+        orderBy.add("c.id" + direction);
+        return this;
+    }
+
+    public CarQuery limit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public String toSql() {
+        StringBuilder sql = new StringBuilder(BASE_SQL);
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        if (!orderBy.isEmpty()) {
+            sql.append(" ORDER BY ").append(String.join(", ", orderBy));
+        }
+        if (limit != null) {
+            sql.append(" LIMIT ").append(limit);
+        }
+        return sql.toString();
+    }
+
+    public List<Object> getParameters() {
+        return List.copyOf(parameters);
+    }
+
+    public PreparedStatement prepare(Connection conn) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(toSql());
+        try {
+            for (int i = 0; i < parameters.size(); i++) {
+                pstmt.setObject(i + 1, parameters.get(i));
+            }
+        } catch (SQLException e) {
+            pstmt.close();
+            throw e;
+        }
+        return pstmt;
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
\ No newline at end of file
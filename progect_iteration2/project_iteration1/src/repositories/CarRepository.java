@@ -4,171 +4,216 @@ import database.DatabaseConnection;
 import entities.Car;
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
 
 public class CarRepository {
+    static final EntityMapper<Car> CAR_MAPPER = EntityMapper.builder(Car::new)
+            .column("id", (car, rs, i) -> car.setId(rs.getInt(i)))
+            .column("brand", (car, rs, i) -> car.setBrand(rs.getString(i)))
+            .column("model", (car, rs, i) -> car.setModel(rs.getString(i)))
+            .column("license_plate", (car, rs, i) -> car.setLicensePlate(rs.getString(i)))
+            .column("year", (car, rs, i) -> car.setYear(rs.getInt(i)))
+            .column("category_id", (car, rs, i) -> car.setCategoryId(rs.getInt(i)))
+            .column("daily_price", (car, rs, i) -> car.setDailyPrice(rs.getDouble(i)))
+            .column("is_available", (car, rs, i) -> car.setAvailable(rs.getBoolean(i)))
+            .column("category_name", (car, rs, i) -> {
+                String categoryName = rs.getString(i);
+                if (categoryName != null) {
+                    car.setCategoryName(categoryName);
+                }
+            })
+            .build();
+
+    private final List<CarChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addChangeListener(CarChangeListener listener) {
+        listeners.add(listener);
+    }
+
     public List<Car> getAllCarsWithCategory() {
-        List<Car> cars = new ArrayList<>();
-        String sql = "SELECT c.*, cat.name as category_name, cat.description as category_description " +
-                "FROM cars c " +
-                "LEFT JOIN categories cat ON c.category_id = cat.id " +
-                "ORDER BY c.brand, c.model";
+        return queryCars(CarQuery.cars().orderByName(), "Error getting cars with category: ");
+    }
 
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+    // Потоковый вариант для больших парков; stream нужно закрыть
+    public Stream<Car> streamAllCarsWithCategory() {
+        return streamAllCarsWithCategory(ResultStreams.DEFAULT_FETCH_SIZE);
+    }
 
-            while (rs.next()) {
-                cars.add(mapResultSetToCar(rs));
-            }
-        } catch (SQLException e) {
-            System.out.println("Error getting cars with category: " + e.getMessage());
+    public Stream<Car> streamAllCarsWithCategory(int fetchSize) {
+        CarQuery query = CarQuery.cars().orderByName();
+        return ResultStreams.stream(query::prepare, fetchSize, CAR_MAPPER,
+                "Error streaming cars with category: ");
+    }
+
+    // Страница парка по (марка, модель, id); cursor == null - первая страница
+    public Page<Car> getCarsPageAfter(String cursor, int pageSize) {
+        CarQuery query = CarQuery.cars();
+        if (cursor != null) {
+            String[] key = PageCursor.decode(cursor, 3);
+            query.afterName(key[0], key[1], Integer.parseInt(key[2]));
         }
-        return cars;
+        List<Car> cars = queryCars(query.orderByNameAndId(false).limit(pageSize + 1), "Error getting cars page: ");
+
+        boolean hasMore = cars.size() > pageSize;
+        List<Car> items = hasMore ? cars.subList(0, pageSize) : cars;
+        String next = hasMore ? carCursor(items.get(items.size() - 1)) : null;
+        String previous = cursor != null && !items.isEmpty() ? carCursor(items.get(0)) : null;
+        return new Page<>(items, next, previous);
+    }
+
+    public Page<Car> getCarsPageBefore(String cursor, int pageSize) {
+        String[] key = PageCursor.decode(cursor, 3);
+        CarQuery query = CarQuery.cars()
+                .beforeName(key[0], key[1], Integer.parseInt(key[2]))
+                .orderByNameAndId(true)
+                .limit(pageSize + 1);
+        List<Car> cars = queryCars(query, "Error getting cars page: ");
+
+        boolean hasMore = cars.size() > pageSize;
+        List<Car> items = new ArrayList<>(hasMore ? cars.subList(0, pageSize) : cars);
+        Collections.reverse(items);
+        String next = !items.isEmpty() ? carCursor(items.get(items.size() - 1)) : cursor;
+        String previous = hasMore ? carCursor(items.get(0)) : null;
+        return new Page<>(items, next, previous);
+    }
+
+    private static String carCursor(Car car) {
+        return PageCursor.encode(car.getBrand(), car.getModel(), String.valueOf(car.getId()));
     }
 
     public List<Car> getAvailableCars() {
-        List<Car> cars = new ArrayList<>();
-        String sql = "SELECT c.*, cat.name as category_name, cat.description as category_description " +
-                "FROM cars c " +
-                "LEFT JOIN categories cat ON c.category_id = cat.id " +
-                "WHERE c.is_available = true " +
-                "ORDER BY c.daily_price";
+        return queryCars(CarQuery.cars().availableOnly().orderByPrice(), "Error getting available cars: ");
+    }
+
+    // Число свободных машин без загрузки самих записей; 0 при ошибке
+    public int countAvailableCars() {
+        String sql = "SELECT COUNT(*) FROM cars WHERE is_available = true";
 
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
-            while (rs.next()) {
-                cars.add(mapResultSetToCar(rs));
-            }
+            return rs.next() ? rs.getInt(1) : 0;
         } catch (SQLException e) {
-            System.out.println("Error getting available cars: " + e.getMessage());
+            System.out.println("Error counting available cars: " + e.getMessage());
         }
-        return cars;
+        return 0;
     }
 
     public List<Car> searchCars(String searchTerm) {
-        List<Car> allCars = getAllCarsWithCategory();
-
-        return allCars.stream()
-                .filter(car ->
-                        car.getBrand().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                                car.getModel().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                                car.getLicensePlate().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                                (car.getCategoryName() != null &&
-                                        car.getCategoryName().toLowerCase().contains(searchTerm.toLowerCase()))
-                )
-                .sorted(Comparator.comparing(Car::getDailyPrice))
-                .toList();
+        return queryCars(CarQuery.cars().matching(searchTerm).orderByPrice(), "Error searching cars: ");
     }
 
     public List<Car> getCarsByCategory(String categoryName) {
-        List<Car> allCars = getAllCarsWithCategory();
+        return queryCars(CarQuery.cars().categoryName(categoryName).orderByPrice(), "Error getting cars by category: ");
+    }
 
-        return allCars.stream()
-                .filter(car ->
-                        car.getCategoryName() != null &&
-                                car.getCategoryName().equalsIgnoreCase(categoryName)
-                )
-                .sorted((c1, c2) -> Double.compare(c1.getDailyPrice(), c2.getDailyPrice()))  // Сортировка
-                .toList();
+    public List<Car> getCarsByCategoryId(int categoryId) {
+        return queryCars(CarQuery.cars().categoryId(categoryId).orderByPrice(), "Error getting cars by category: ");
     }
 
     public List<Car> getCarsByPriceRange(double minPrice, double maxPrice) {
-        List<Car> allCars = getAllCarsWithCategory();
+        return queryCars(CarQuery.cars().priceBetween(minPrice, maxPrice).orderByPrice(),
+                "Error getting cars by price range: ");
+    }
 
-        return allCars.stream()
-                .filter(car -> car.getDailyPrice() >= minPrice && car.getDailyPrice() <= maxPrice)
-                .sorted(Comparator.comparing(Car::getDailyPrice))
-                .toList();
+    public List<Car> queryCars(CarQuery query) {
+        return queryCars(query, "Error querying cars: ");
     }
 
-    public void printCarStatistics() {
-        List<Car> allCars = getAllCarsWithCategory();
+    private List<Car> queryCars(CarQuery query, String errorMessage) {
+        List<Car> cars = new ArrayList<>();
 
-        if (allCars.isEmpty()) {
-            System.out.println("No cars in database.");
-            return;
-        }
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = query.prepare(conn);
+             ResultSet rs = pstmt.executeQuery()) {
 
-        long totalCars = allCars.size();
-        long availableCars = allCars.stream().filter(Car::isAvailable).count();
-        double avgPrice = allCars.stream().mapToDouble(Car::getDailyPrice).average().orElse(0);
-        double maxPrice = allCars.stream().mapToDouble(Car::getDailyPrice).max().orElse(0);
-        double minPrice = allCars.stream().mapToDouble(Car::getDailyPrice).min().orElse(0);
-
-        System.out.println("\n=== Car Statistics ===");
-        System.out.println("Total Cars: " + totalCars);
-        System.out.println("Available Cars: " + availableCars);
-        System.out.printf("Average Daily Price: $%.2f\n", avgPrice);
-        System.out.printf("Most Expensive: $%.2f\n", maxPrice);
-        System.out.printf("Cheapest: $%.2f\n", minPrice);
-
-        System.out.println("\n=== Cars by Category ===");
-        allCars.stream()
-                .filter(car -> car.getCategoryName() != null)
-                .collect(java.util.stream.Collectors.groupingBy(
-                        Car::getCategoryName,
-                        java.util.stream.Collectors.counting()
-                ))
-                .forEach((category, count) ->
-                        System.out.printf("%-15s: %d cars\n", category, count)
-                );
+            RowMapper<Car> mapper = CAR_MAPPER.bind(rs);
+            while (rs.next()) {
+                cars.add(mapper.map(rs));
+            }
+        } catch (SQLException e) {
+            System.out.println(errorMessage + e.getMessage());
+        }
+        return cars;
     }
 
-    public void updateCarAvailability(int carId, boolean isAvailable) {
-        String sql = "UPDATE cars SET is_available = ? WHERE id = ?";
+    // Номера всех машин в верхнем регистре без пробелов по краям; null при ошибке
+    public Set<String> getLicensePlates() {
+        Set<String> plates = new HashSet<>();
+        String sql = "SELECT license_plate FROM cars";
 
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
-            pstmt.setBoolean(1, isAvailable);
-            pstmt.setInt(2, carId);
-            pstmt.executeUpdate();
+            while (rs.next()) {
+                plates.add(normalizeLicensePlate(rs.getString("license_plate")));
+            }
         } catch (SQLException e) {
-            System.out.println("Error updating car availability: " + e.getMessage());
+            System.out.println("Error getting license plates: " + e.getMessage());
+            return null;
         }
+        return plates;
     }
 
-    // Получить машину по ID
-    public Car getCarById(int id) {
-        String sql = "SELECT c.*, cat.name as category_name, cat.description as category_description " +
-                "FROM cars c " +
-                "LEFT JOIN categories cat ON c.category_id = cat.id " +
-                "WHERE c.id = ?";
+    public static String normalizeLicensePlate(String licensePlate) {
+        return licensePlate == null ? null : licensePlate.trim().toUpperCase(Locale.ROOT);
+    }
+
+    // Пакетная вставка для импорта; закоммиченные машины сразу уходят подписчикам
+    public CarBatchWriter openBatchWriter(int batchSize, int commitInterval,
+                                          CarBatchWriter.RejectHandler onReject) throws SQLException {
+        Connection conn = DatabaseConnection.getInstance().getConnection();
+        if (conn == null) {
+            throw new SQLException("No database connection");
+        }
+        try {
+            return new CarBatchWriter(conn, batchSize, commitInterval, onReject, this::publishCarSaved);
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    private void publishCarSaved(Car car) {
+        for (CarChangeListener listener : listeners) {
+            listener.carSaved(car);
+        }
+    }
+
+    public void updateCarAvailability(int carId, boolean isAvailable) {
+        String sql = "UPDATE cars SET is_available = ? WHERE id = ?";
 
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return mapResultSetToCar(rs);
+            pstmt.setBoolean(1, isAvailable);
+            pstmt.setInt(2, carId);
+            if (pstmt.executeUpdate() > 0) {
+                publishAvailabilityChange(carId, isAvailable);
             }
         } catch (SQLException e) {
-            System.out.println("Error getting car by ID: " + e.getMessage());
+            System.out.println("Error updating car availability: " + e.getMessage());
         }
-        return null;
-    }
-
-    private Car mapResultSetToCar(ResultSet rs) throws SQLException {
-        Car car = new Car();
-        car.setId(rs.getInt("id"));
-        car.setBrand(rs.getString("brand"));
-        car.setModel(rs.getString("model"));
-        car.setLicensePlate(rs.getString("license_plate"));
-        car.setYear(rs.getInt("year"));
-        car.setCategoryId(rs.getInt("category_id"));
-        car.setDailyPrice(rs.getDouble("daily_price"));
-        car.setAvailable(rs.getBoolean("is_available"));
-
-        if (rs.getString("category_name") != null) {
-            car.setCategoryName(rs.getString("category_name"));
+    }
+
+    // Для изменений флага, сделанных в чужой транзакции (например, RentalRepository.bookCar)
+    public void publishAvailabilityChange(int carId, boolean isAvailable) {
+        for (CarChangeListener listener : listeners) {
+            listener.carAvailabilityChanged(carId, isAvailable);
         }
+    }
 
-        return car;
+    // Получить машину по ID
+    public Car getCarById(int id) {
+        List<Car> cars = queryCars(CarQuery.cars().byId(id), "Error getting car by ID: ");
+        return cars.isEmpty() ? null : cars.get(0);
     }
 }
\ No newline at end of file
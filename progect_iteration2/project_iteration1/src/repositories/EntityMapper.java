@@ -0,0 +1,135 @@
+package repositories;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Маппер сущности по описанию колонок. Метки колонок переводятся в индексы один раз
+// на форму результата (список меток из ResultSetMetaData), дальше строки читаются по индексам.
+// Перед циклом по строкам нужно вызвать bind(rs); map(rs) без bind разбирает метаданные на каждой строке
+final class EntityMapper<T> implements RowMapper<T> {
+    @FunctionalInterface
+    interface ColumnSetter<T> {
+        void set(T target, ResultSet rs, int column) throws SQLException;
+    }
+
+    private final Supplier<T> factory;
+    private final List<Column<T>> columns;
+    private final ConcurrentHashMap<String, Bound<T>> shapes = new ConcurrentHashMap<>();
+
+    private EntityMapper(Supplier<T> factory, List<Column<T>> columns) {
+        this.factory = factory;
+        this.columns = columns;
+    }
+
+    static <T> Builder<T> builder(Supplier<T> factory) {
+        return new Builder<>(factory);
+    }
+
+    @Override
+    public RowMapper<T> bind(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int count = metaData.getColumnCount();
+
+        StringBuilder key = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            key.append(metaData.getColumnLabel(i)).append('\u0000');
+        }
+
+        String shape = key.toString();
+        Bound<T> bound = shapes.get(shape);
+        if (bound == null) {
+            bound = resolve(metaData);
+            Bound<T> existing = shapes.putIfAbsent(shape, bound);
+            if (existing != null) {
+                bound = existing;
+            }
+        }
+        return bound;
+    }
+
+    @Override
+    public T map(ResultSet rs) throws SQLException {
+        return bind(rs).map(rs);
+    }
+
+    private Bound<T> resolve(ResultSetMetaData metaData) throws SQLException {
+        // Как у ResultSet.findColumn: без учёта регистра, при повторе метки берётся первая колонка
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = metaData.getColumnCount(); i >= 1; i--) {
+            indexes.put(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+
+        List<ColumnSetter<T>> setters = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (Column<T> column : columns) {
+            Integer index = indexes.get(column.label);
+            if (index == null) {
+                throw new SQLException("Column not found in result: " + column.label);
+            }
+            setters.add(column.setter);
+            positions.add(index);
+        }
+
+        @SuppressWarnings("unchecked")
+        ColumnSetter<T>[] setterArray = setters.toArray((ColumnSetter<T>[]) new ColumnSetter<?>[setters.size()]);
+        int[] positionArray = positions.stream().mapToInt(Integer::intValue).toArray();
+        return new Bound<>(factory, setterArray, positionArray);
+    }
+
+    static final class Builder<T> {
+        private final Supplier<T> factory;
+        private final List<Column<T>> columns = new ArrayList<>();
+
+        private Builder(Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        Builder<T> column(String label, ColumnSetter<T> setter) {
+            columns.add(new Column<>(label.toLowerCase(Locale.ROOT), setter));
+            return this;
+        }
+
+        EntityMapper<T> build() {
+            return new EntityMapper<>(factory, List.copyOf(columns));
+        }
+    }
+
+    private static final class Column<T> {
+        private final String label;
+        private final ColumnSetter<T> setter;
+
+        Column(String label, ColumnSetter<T> setter) {
+            this.label = label;
+            this.setter = setter;
+        }
+    }
+
+    private static final class Bound<T> implements RowMapper<T> {
+        private final Supplier<T> factory;
+        private final ColumnSetter<T>[] setters;
+        private final int[] positions;
+
+        Bound(Supplier<T> factory, ColumnSetter<T>[] setters, int[] positions) {
+            this.factory = factory;
+            this.setters = setters;
+            this.positions = positions;
+        }
+
+        @Override
+        public T map(ResultSet rs) throws SQLException {
+            T target = factory.get();
+            for (int i = 0; i < setters.length; i++) {
+                setters[i].set(target, rs, positions[i]);
+            }
+            return target;
+        }
+    }
+}
\ No newline at end of file
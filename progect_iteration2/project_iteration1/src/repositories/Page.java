@@ -0,0 +1,26 @@
+package repositories;
+
+import java.util.List;
+
+// Страница keyset-пагинации; курсоры непрозрачные, null - в эту сторону страниц больше нет
+public class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+    private final String previousCursor;
+
+    public Page(List<T> items, String nextCursor, String previousCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
+    public List<T> getItems() { return items; }
+
+    public String getNextCursor() { return nextCursor; }
+
+    public String getPreviousCursor() { return previousCursor; }
+
+    public boolean hasNext() { return nextCursor != null; }
+
+    public boolean hasPrevious() { return previousCursor != null; }
+}
\ No newline at end of file
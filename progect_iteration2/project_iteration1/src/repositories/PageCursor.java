@@ -0,0 +1,30 @@
+package repositories;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Кодирует ключ последней/первой строки страницы в непрозрачную строку
+final class PageCursor {
+    private static final String SEPARATOR = "\u001F";
+
+    private PageCursor() {}
+
+    static String encode(String... parts) {
+        String joined = String.join(SEPARATOR, parts);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String[] decode(String cursor, int expectedParts) {
+        String joined;
+        try {
+            joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+        String[] parts = joined.split(SEPARATOR, -1);
+        if (parts.length != expectedParts) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+        return parts;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,131 @@
+package repositories;
+
+import entities.Rental;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+// Изменения аренд, уже принятые в журнал, но ещё не перенесённые в базу, в порядке seq.
+// Каждое изменение хранит аренду целиком, какой она станет после переноса, поэтому и проверки режима журнала,
+// и чтения для подписчиков поправляют прочитанное из базы этими изменениями.
+// Не потокобезопасен: все вызовы идут под монитором этого объекта; наружу отдаются только копии аренд
+final class PendingRentalChanges {
+    private final ArrayDeque<Change> changes = new ArrayDeque<>();
+
+    void booked(long seq, Rental rental) {
+        changes.addLast(new Change(seq, new Rental(rental), rental.getCarId(), Boolean.FALSE));
+    }
+
+    void statusChanged(long seq, Rental rental) {
+        changes.addLast(new Change(seq, new Rental(rental), rental.getCarId(), null));
+    }
+
+    void carFreed(long seq, int carId) {
+        changes.addLast(new Change(seq, null, carId, Boolean.TRUE));
+    }
+
+    // Записи до seq включительно уже в базе (или отброшены писателем)
+    void applied(long seq) {
+        while (!changes.isEmpty() && changes.peekFirst().seq <= seq) {
+            changes.pollFirst();
+        }
+    }
+
+    boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    // Аренда, какой она станет после переноса, или null, если изменений по ней нет
+    Rental latest(int rentalId) {
+        Iterator<Change> newest = changes.descendingIterator();
+        while (newest.hasNext()) {
+            Change change = newest.next();
+            if (change.rental != null && change.rental.getId() == rentalId) {
+                return new Rental(change.rental);
+            }
+        }
+        return null;
+    }
+
+    // Каким станет is_available машины после переноса или null, если изменений по ней нет
+    Boolean availabilityOf(int carId) {
+        Iterator<Change> newest = changes.descendingIterator();
+        while (newest.hasNext()) {
+            Change change = newest.next();
+            if (change.carId == carId && change.available != null) {
+                return change.available;
+            }
+        }
+        return null;
+    }
+
+    // Выборка из базы с поправкой: изменённые аренды заменяются своей последней версией
+    // (или выпадают, если она больше не подходит под matches), новые подходящие добавляются
+    List<Rental> merge(List<Rental> rows, Predicate<Rental> matches, Comparator<Rental> order) {
+        if (changes.isEmpty()) {
+            return rows;
+        }
+        Map<Integer, Rental> latest = latestById();
+        List<Rental> merged = new ArrayList<>(rows.size() + latest.size());
+        for (Rental row : rows) {
+            Rental pending = latest.remove(row.getId());
+            if (pending == null) {
+                merged.add(row);
+            } else if (matches.test(pending)) {
+                merged.add(pending);
+            }
+        }
+        for (Rental pending : latest.values()) {
+            if (matches.test(pending)) {
+                merged.add(pending);
+            }
+        }
+        merged.sort(order);
+        return merged;
+    }
+
+    // Последняя версия каждой изменённой аренды, копии
+    Map<Integer, Rental> latestById() {
+        Map<Integer, Rental> latest = new HashMap<>();
+        Iterator<Change> newest = changes.descendingIterator();
+        while (newest.hasNext()) {
+            Change change = newest.next();
+            if (change.rental != null && !latest.containsKey(change.rental.getId())) {
+                latest.put(change.rental.getId(), new Rental(change.rental));
+            }
+        }
+        return latest;
+    }
+
+    // ID броней, которых в базе может ещё не быть
+    Set<Integer> bookedIds() {
+        Set<Integer> ids = new HashSet<>();
+        for (Change change : changes) {
+            if (change.rental != null && Boolean.FALSE.equals(change.available)) {
+                ids.add(change.rental.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static class Change {
+        private final long seq;
+        private final Rental rental;
+        private final int carId;
+        private final Boolean available;
+
+        Change(long seq, Rental rental, int carId, Boolean available) {
+            this.seq = seq;
+            this.rental = rental;
+            this.carId = carId;
+            this.available = available;
+        }
+    }
+}
\ No newline at end of file
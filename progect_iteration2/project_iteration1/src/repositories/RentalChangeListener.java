@@ -0,0 +1,10 @@
+package repositories;
+
+import entities.Rental;
+
+// Подписчики получают изменения аренд после успешной записи в базу
+public interface RentalChangeListener {
+    void rentalCreated(Rental rental);
+
+    void rentalStatusChanged(int rentalId, int carId, int userId, String status);
+}
\ No newline at end of file
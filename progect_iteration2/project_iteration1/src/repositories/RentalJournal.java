@@ -0,0 +1,295 @@
+package repositories;
+
+import entities.Rental;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Журнал изменений аренд в memory-mapped файле, только дописывание.
+// Запись: длина тела (int), CRC32 тела (int), тело: seq (long), тип (byte), поля.
+// Запись подтверждена, как только легла в отображённую память, - она переживает падение процесса;
+// на диск страницы сбрасывает force() фонового писателя. Когда база догнала журнал, запись идёт с начала файла
+public class RentalJournal implements AutoCloseable {
+    static final byte CREATE = 1;
+    static final byte STATUS = 2;
+
+    private static final int RECORD_HEADER = 8;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    // Все поля ниже меняются только под this
+    private int writePosition;
+    private int readPosition;
+    private long lastSeq;
+    private long appliedSeq;
+
+    private RentalJournal(FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    public static RentalJournal open(Path path, int capacityBytes) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            int capacity = (int) Math.max(channel.size(), capacityBytes);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            return new RentalJournal(channel, buffer, capacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Разбор файла после старта. Валидный журнал - цепочка записей с верным CRC и растущим seq;
+    // первая запись, нарушающая это, - оборванный хвост или остаток прошлого круга.
+    // Записи с seq <= appliedSeq база уже видела, их пропускаем
+    synchronized void recover(long appliedSeq) {
+        int position = 0;
+        int firstPending = -1;
+        long previousSeq = Long.MIN_VALUE;
+
+        while (true) {
+            Entry entry = decode(position);
+            if (entry == null || entry.seq <= previousSeq) {
+                break;
+            }
+            if (entry.seq > appliedSeq && firstPending < 0) {
+                firstPending = position;
+            }
+            previousSeq = entry.seq;
+            position = entry.end;
+        }
+
+        this.writePosition = position;
+        this.readPosition = firstPending >= 0 ? firstPending : position;
+        this.lastSeq = Math.max(previousSeq, appliedSeq);
+        // seq идут подряд, так что всё до первой неприменённой записи уже в базе
+        this.appliedSeq = firstPending >= 0 ? decode(firstPending).seq - 1 : lastSeq;
+        if (readPosition == writePosition) {
+            readPosition = 0;
+            writePosition = 0;
+        }
+    }
+
+    // ID аренды уже выдан (RentalRepository резервирует его при приёме брони).
+    // seq записи или -1, если журнал за timeoutMillis так и не освободился
+    public long appendCreate(Rental rental, long timeoutMillis) throws InterruptedException {
+        byte[] customerName = bytes(rental.getCustomerName());
+        byte[] customerEmail = bytes(rental.getCustomerEmail());
+        byte[] status = bytes(rental.getStatus());
+        ByteBuffer body = ByteBuffer.allocate(9 + 4 + 4 + 4 + 8 + 8 + 8
+                + fieldSize(customerName) + fieldSize(customerEmail) + fieldSize(status));
+        body.position(9);
+        body.putInt(rental.getId());
+        body.putInt(rental.getCarId());
+        body.putInt(rental.getUserId());
+        body.putLong(rental.getStartDate().toEpochDay());
+        body.putLong(rental.getEndDate().toEpochDay());
+        body.putDouble(rental.getTotalPrice());
+        putString(body, customerName);
+        putString(body, customerEmail);
+        putString(body, status);
+        return append(CREATE, body, timeoutMillis);
+    }
+
+    public long appendStatus(int rentalId, String status, long timeoutMillis) throws InterruptedException {
+        byte[] statusBytes = bytes(status);
+        ByteBuffer body = ByteBuffer.allocate(9 + 4 + fieldSize(statusBytes));
+        body.position(9);
+        body.putInt(rentalId);
+        putString(body, statusBytes);
+        return append(STATUS, body, timeoutMillis);
+    }
+
+    public synchronized long getPendingCount() {
+        return lastSeq - appliedSeq;
+    }
+
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    // Ждёт, пока не наберётся batchSize записей или пока первая из них не пролежит flushIntervalMillis
+    synchronized boolean awaitBatch(int batchSize, long flushIntervalMillis) throws InterruptedException {
+        while (lastSeq == appliedSeq) {
+            wait(flushIntervalMillis);
+            if (lastSeq == appliedSeq) {
+                return false;
+            }
+        }
+        long deadline = System.currentTimeMillis() + flushIntervalMillis;
+        long remaining;
+        while (lastSeq - appliedSeq < batchSize && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            wait(remaining);
+        }
+        return true;
+    }
+
+    // Следующие неприменённые записи, не больше max; позиция чтения не сдвигается до markApplied
+    synchronized List<Entry> readPending(int max) {
+        List<Entry> entries = new ArrayList<>();
+        int position = readPosition;
+        while (entries.size() < max && position < writePosition) {
+            Entry entry = decode(position);
+            entries.add(entry);
+            position = entry.end;
+        }
+        return entries;
+    }
+
+    synchronized void markApplied(Entry last) {
+        readPosition = last.end;
+        appliedSeq = last.seq;
+        if (readPosition == writePosition) {
+            readPosition = 0;
+            writePosition = 0;
+        }
+        notifyAll();
+    }
+
+    private synchronized long append(byte type, ByteBuffer body, long timeoutMillis) throws InterruptedException {
+        int length = body.capacity();
+        if (RECORD_HEADER + length > capacity) {
+            throw new IllegalArgumentException("Journal record is larger than the journal");
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remaining;
+        while (writePosition + RECORD_HEADER + length > capacity) {
+            // Место освободится, когда писатель применит всё и журнал начнётся сначала
+            if ((remaining = deadline - System.currentTimeMillis()) <= 0) {
+                return -1;
+            }
+            wait(remaining);
+        }
+
+        long seq = ++lastSeq;
+        body.putLong(0, seq);
+        body.put(8, type);
+
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, length);
+
+        ByteBuffer target = buffer.duplicate();
+        target.position(writePosition + RECORD_HEADER);
+        target.put(body.array(), 0, length);
+        buffer.putInt(writePosition + 4, (int) crc.getValue());
+        // Длина пишется последней: без неё запись при разборе не видна
+        buffer.putInt(writePosition, length);
+
+        writePosition += RECORD_HEADER + length;
+        notifyAll();
+        return seq;
+    }
+
+    private Entry decode(int position) {
+        if (position + RECORD_HEADER > capacity) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length < 9 || length > capacity - position - RECORD_HEADER) {
+            return null;
+        }
+
+        ByteBuffer body = buffer.duplicate();
+        body.position(position + RECORD_HEADER);
+        body.limit(position + RECORD_HEADER + length);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+            return null;
+        }
+
+        long seq = body.getLong();
+        byte type = body.get();
+        int end = position + RECORD_HEADER + length;
+        try {
+            if (type == CREATE) {
+                Rental rental = new Rental();
+                rental.setId(body.getInt());
+                rental.setCarId(body.getInt());
+                rental.setUserId(body.getInt());
+                rental.setStartDate(LocalDate.ofEpochDay(body.getLong()));
+                rental.setEndDate(LocalDate.ofEpochDay(body.getLong()));
+                rental.setTotalPrice(body.getDouble());
+                rental.setCustomerName(getString(body));
+                rental.setCustomerEmail(getString(body));
+                rental.setStatus(getString(body));
+                return new Entry(seq, type, rental, 0, null, end);
+            }
+            if (type == STATUS) {
+                int rentalId = body.getInt();
+                return new Entry(seq, type, null, rentalId, getString(body), end);
+            }
+        } catch (RuntimeException e) {
+            // Тело не соответствует типу - считаем запись битой
+        }
+        return null;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int fieldSize(byte[] value) {
+        return 2 + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(ByteBuffer body, byte[] value) {
+        if (value == null) {
+            body.putShort((short) -1);
+            return;
+        }
+        if (value.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal field is too long");
+        }
+        body.putShort((short) value.length);
+        body.put(value);
+    }
+
+    private static String getString(ByteBuffer body) {
+        short length = body.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        body.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    static class Entry {
+        final long seq;
+        final byte type;
+        final Rental rental;
+        final int rentalId;
+        final String status;
+        final int end;
+
+        Entry(long seq, byte type, Rental rental, int rentalId, String status, int end) {
+            this.seq = seq;
+            this.type = type;
+            this.rental = rental;
+            this.rentalId = rentalId;
+            this.status = status;
+            this.end = end;
+        }
+    }
+}
\ No newline at end of file
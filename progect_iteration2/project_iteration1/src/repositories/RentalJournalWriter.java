@@ -0,0 +1,149 @@
+package repositories;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+// Фоновый писатель журнала: пачками переносит записи в rentals и в той же транзакции
+// сдвигает отметку applied_seq, поэтому после падения повторяются ровно неприменённые записи
+public class RentalJournalWriter {
+    private static final String JOURNAL_NAME = "rentals";
+
+    private final RentalJournal journal;
+    private final RentalRepository rentalRepository;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    // Пропущенные записи и отвергнутые брони; и те и другие есть в rental_journal_rejects
+    private final LongAdder skipped = new LongAdder();
+
+    private volatile boolean stopping;
+    private Thread thread;
+
+    public RentalJournalWriter(RentalJournal journal, RentalRepository rentalRepository,
+                               int batchSize, long flushIntervalMillis) {
+        if (batchSize <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Batch size and flush interval must be positive");
+        }
+        this.journal = journal;
+        this.rentalRepository = rentalRepository;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    // Восстанавливает журнал по отметке из базы и запускает перенос; недописанное до падения уйдёт первым
+    public synchronized void start() throws SQLException {
+        if (thread != null) {
+            return;
+        }
+        journal.recover(rentalRepository.getJournalCheckpoint(JOURNAL_NAME));
+        rentalRepository.restoreJournal(journal.readPending(Integer.MAX_VALUE));
+
+        thread = new Thread(this::run, "rental-journal-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Дописывает всё, что успеет за timeoutMillis; остальное останется в журнале до следующего запуска
+    public synchronized void stop(long timeoutMillis) {
+        if (thread == null) {
+            return;
+        }
+        stopping = true;
+        synchronized (journal) {
+            journal.notifyAll();
+        }
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread.interrupt();
+        thread = null;
+        journal.force();
+    }
+
+    public long getAppliedCount() { return applied.sum(); }
+
+    public long getBatchCount() { return batches.sum(); }
+
+    public long getSkippedCount() { return skipped.sum(); }
+
+    public long getPendingCount() { return journal.getPendingCount(); }
+
+    private void run() {
+        while (true) {
+            try {
+                if (!stopping && !journal.awaitBatch(batchSize, flushIntervalMillis)) {
+                    continue;
+                }
+                List<RentalJournal.Entry> batch = journal.readPending(batchSize);
+                if (batch.isEmpty()) {
+                    if (stopping) {
+                        return;
+                    }
+                    continue;
+                }
+                journal.force();
+                if (!applyBatch(batch)) {
+                    // База недоступна - ждём и повторяем ту же пачку
+                    Thread.sleep(flushIntervalMillis);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private boolean applyBatch(List<RentalJournal.Entry> batch) {
+        try {
+            int rejected = rentalRepository.applyJournal(JOURNAL_NAME, batch);
+            journal.markApplied(batch.get(batch.size() - 1));
+            rentalRepository.journalApplied(batch.get(batch.size() - 1).seq);
+            applied.add(batch.size() - rejected);
+            skipped.add(rejected);
+            batches.increment();
+            return true;
+        } catch (SQLException e) {
+            if (isTransient(e)) {
+                System.out.println("Error applying rental journal: " + e.getMessage());
+                return false;
+            }
+        }
+
+        // Пачку отвергла сама база - применяем по одной, чтобы найти и пропустить плохие записи
+        for (RentalJournal.Entry entry : batch) {
+            try {
+                int rejected = rentalRepository.applyJournal(JOURNAL_NAME, List.of(entry));
+                applied.add(1 - rejected);
+                skipped.add(rejected);
+            } catch (SQLException e) {
+                if (isTransient(e)) {
+                    System.out.println("Error applying rental journal: " + e.getMessage());
+                    return false;
+                }
+                System.out.println("Skipping rental journal record " + entry.seq + ": " + e.getMessage());
+                rentalRepository.recordJournalReject(JOURNAL_NAME, entry, e.getMessage());
+                skipped.increment();
+            }
+            journal.markApplied(entry);
+            rentalRepository.journalApplied(entry.seq);
+        }
+        batches.increment();
+        return true;
+    }
+
+    // Обрыв соединения, конфликт транзакций, нехватка ресурсов - стоит повторить позже
+    private static boolean isTransient(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        return state == null || state.startsWith("08") || state.startsWith("40")
+                || state.startsWith("53") || state.startsWith("57") || "55P03".equals(state);
+    }
+}
\ No newline at end of file
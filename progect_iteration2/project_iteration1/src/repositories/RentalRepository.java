@@ -1,65 +1,382 @@
 package repositories;
 
 import database.DatabaseConnection;
+import entities.OverdueRental;
 import entities.Rental;
+import entities.RentalStatistics;
+import entities.RentalSummary;
 import java.sql.*;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public class RentalRepository {
+    private static final int MAX_BOOKING_ATTEMPTS = 3;
+    private static final long BOOKING_RETRY_BACKOFF_MS = 50;
+    private static final long JOURNAL_APPEND_TIMEOUT_MS = 5_000;
+    private static final int RENTAL_ID_BLOCK = 64;
 
+    // Ровно те колонки, что читает RENTAL_MAPPER; общий для всех выборок аренд с деталями
+    private static final String RENTAL_PAGE_SELECT = "SELECT r.*, " +
+            "c.brand as car_brand, c.model as car_model, c.license_plate as car_license, " +
+            "u.username " +
+            "FROM rentals r " +
+            "JOIN cars c ON r.car_id = c.id " +
+            "JOIN users u ON r.user_id = u.id ";
+    // Чем ensurePagingSchema заполняет пустой created_at: такие аренды идут как самые старые
+    private static final LocalDateTime MISSING_CREATED_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final EntityMapper<Rental> RENTAL_MAPPER = EntityMapper.builder(Rental::new)
+            .column("id", (rental, rs, i) -> rental.setId(rs.getInt(i)))
+            .column("car_id", (rental, rs, i) -> rental.setCarId(rs.getInt(i)))
+            .column("user_id", (rental, rs, i) -> rental.setUserId(rs.getInt(i)))
+            .column("customer_name", (rental, rs, i) -> rental.setCustomerName(rs.getString(i)))
+            .column("customer_email", (rental, rs, i) -> rental.setCustomerEmail(rs.getString(i)))
+            .column("start_date", (rental, rs, i) -> rental.setStartDate(rs.getDate(i).toLocalDate()))
+            .column("end_date", (rental, rs, i) -> rental.setEndDate(rs.getDate(i).toLocalDate()))
+            .column("total_price", (rental, rs, i) -> rental.setTotalPrice(rs.getDouble(i)))
+            .column("status", (rental, rs, i) -> rental.setStatus(rs.getString(i)))
+            .column("created_at", (rental, rs, i) -> {
+                Timestamp createdAt = rs.getTimestamp(i);
+                if (createdAt != null) {
+                    rental.setCreatedAt(createdAt.toLocalDateTime());
+                }
+            })
+            .column("car_brand", (rental, rs, i) -> rental.setCarBrand(rs.getString(i)))
+            .column("car_model", (rental, rs, i) -> rental.setCarModel(rs.getString(i)))
+            .column("car_license", (rental, rs, i) -> rental.setCarLicensePlate(rs.getString(i)))
+            .column("username", (rental, rs, i) -> rental.setUsername(rs.getString(i)))
+            .build();
+
+    // Узкие выборки под конкретные экраны; колонки читаются по меткам, как у RENTAL_MAPPER,
+    // а неизменяемая проекция собирается конструктором из прочитанной аренды
+    private static final String RENTAL_SUMMARY_SELECT = "SELECT r.id, r.car_id, " +
+            "c.brand as car_brand, c.model as car_model, " +
+            "r.start_date, r.end_date, r.total_price, r.status " +
+            "FROM rentals r " +
+            "JOIN cars c ON r.car_id = c.id ";
+
+    private static final EntityMapper<Rental> RENTAL_SUMMARY_ROW_MAPPER = EntityMapper.builder(Rental::new)
+            .column("id", (rental, rs, i) -> rental.setId(rs.getInt(i)))
+            .column("car_id", (rental, rs, i) -> rental.setCarId(rs.getInt(i)))
+            .column("car_brand", (rental, rs, i) -> rental.setCarBrand(rs.getString(i)))
+            .column("car_model", (rental, rs, i) -> rental.setCarModel(rs.getString(i)))
+            .column("start_date", (rental, rs, i) -> rental.setStartDate(rs.getDate(i).toLocalDate()))
+            .column("end_date", (rental, rs, i) -> rental.setEndDate(rs.getDate(i).toLocalDate()))
+            .column("total_price", (rental, rs, i) -> rental.setTotalPrice(rs.getDouble(i)))
+            .column("status", (rental, rs, i) -> rental.setStatus(rs.getString(i)))
+            .build();
+
+    private static final RowMapper<RentalSummary> RENTAL_SUMMARY_MAPPER =
+            RENTAL_SUMMARY_ROW_MAPPER.andThen(RentalRepository::toSummary);
+
+    private static final String OVERDUE_CANDIDATE_SELECT = "SELECT r.id, r.customer_name, r.customer_email, " +
+            "c.brand as car_brand, c.model as car_model, r.end_date, r.total_price " +
+            "FROM rentals r " +
+            "JOIN cars c ON r.car_id = c.id " +
+            "WHERE r.status = 'ACTIVE' ";
+
+    private static final EntityMapper<Rental> OVERDUE_CANDIDATE_ROW_MAPPER = EntityMapper.builder(Rental::new)
+            .column("id", (rental, rs, i) -> rental.setId(rs.getInt(i)))
+            .column("customer_name", (rental, rs, i) -> rental.setCustomerName(rs.getString(i)))
+            .column("customer_email", (rental, rs, i) -> rental.setCustomerEmail(rs.getString(i)))
+            .column("car_brand", (rental, rs, i) -> rental.setCarBrand(rs.getString(i)))
+            .column("car_model", (rental, rs, i) -> rental.setCarModel(rs.getString(i)))
+            .column("end_date", (rental, rs, i) -> rental.setEndDate(rs.getDate(i).toLocalDate()))
+            .column("total_price", (rental, rs, i) -> rental.setTotalPrice(rs.getDouble(i)))
+            .build();
+
+    private static final RowMapper<OverdueRental> OVERDUE_CANDIDATE_MAPPER =
+            OVERDUE_CANDIDATE_ROW_MAPPER.andThen(RentalRepository::toOverdueCandidate);
+
+    // Только то, что нужно для проверки пересечения дат
+    private static final EntityMapper<Rental> BLOCKING_RENTAL_MAPPER = EntityMapper.builder(Rental::new)
+            .column("id", (rental, rs, i) -> rental.setId(rs.getInt(i)))
+            .column("car_id", (rental, rs, i) -> rental.setCarId(rs.getInt(i)))
+            .column("start_date", (rental, rs, i) -> rental.setStartDate(rs.getDate(i).toLocalDate()))
+            .column("end_date", (rental, rs, i) -> rental.setEndDate(rs.getDate(i).toLocalDate()))
+            .column("status", (rental, rs, i) -> rental.setStatus(rs.getString(i)))
+            .build();
+
+    // Данные машины и клиента для брони, принятой в журнал: те же, что RENTAL_MAPPER берёт из join
+    private static final String BOOKING_DETAILS_SELECT = "SELECT c.is_available, c.brand, c.model, c.license_plate, " +
+            "(SELECT username FROM users WHERE id = ?) AS username FROM cars c WHERE c.id = ?";
+    private static final String REJECT_LOG_SQL = "INSERT INTO rental_journal_rejects " +
+            "(journal_name, seq, record_type, rental_id, reason) VALUES (?, ?, ?, ?, ?)";
+
+    // Порядки выборок ниже, для слияния с неперенесёнными изменениями журнала
+    private static final Comparator<Rental> BY_ID = Comparator.comparingInt(Rental::getId);
+    private static final Comparator<Rental> BY_CREATED_AT_DESC = Comparator
+            .comparing(Rental::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(BY_ID.reversed());
+    private static final Comparator<Rental> BY_START_DATE_DESC =
+            Comparator.comparing(Rental::getStartDate).thenComparing(BY_ID).reversed();
+    private static final Comparator<Rental> BY_END_DATE = Comparator.comparing(Rental::getEndDate).thenComparing(BY_ID);
+
+    private final List<RentalChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Режим write-behind: bookCar и массовая смена статусов проверяют запрос чтением из базы
+    // и только пишут в журнал; в базу изменения переносит RentalJournalWriter. Подписчики узнают
+    // о принятом изменении сразу, а чтения ниже учитывают ещё не перенесённые (read-your-writes)
+    private volatile RentalJournal journal;
+    private final PendingRentalChanges pendingChanges = new PendingRentalChanges();
+    // Выданные последовательностью, но ещё не занятые ID аренд; под монитором pendingChanges
+    private final ArrayDeque<Integer> reservedRentalIds = new ArrayDeque<>();
+
+    public void addChangeListener(RentalChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void setJournal(RentalJournal journal) {
+        this.journal = journal;
+    }
+
+    // null, если запрос не удался
     public List<Rental> getAllRentalsWithDetails() {
-        List<Rental> rentals = new ArrayList<>();
-        String sql = "SELECT r.*, " +
-                "c.brand as car_brand, c.model as car_model, c.license_plate as car_license, " +
-                "c.daily_price as car_price, c.category_id as car_category_id, " +
-                "u.username, u.email as user_email, u.full_name as user_name " +
-                "FROM rentals r " +
-                "JOIN cars c ON r.car_id = c.id " +
-                "JOIN users u ON r.user_id = u.id " +
-                "ORDER BY r.created_at DESC";
+        String sql = RENTAL_PAGE_SELECT + "ORDER BY r.created_at DESC";
 
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        return withPending(queryRows(sql, RENTAL_MAPPER, "Error getting rentals with details: "),
+                rental -> true, BY_CREATED_AT_DESC);
+    }
 
-            while (rs.next()) {
-                rentals.add(mapResultSetToRental(rs));
+    // Потоковый вариант для длинной истории аренд; stream нужно закрыть
+    public Stream<Rental> streamAllRentalsWithDetails() {
+        return streamAllRentalsWithDetails(ResultStreams.DEFAULT_FETCH_SIZE);
+    }
+
+    public Stream<Rental> streamAllRentalsWithDetails(int fetchSize) {
+        String sql = RENTAL_PAGE_SELECT + "ORDER BY r.created_at DESC";
+
+        Stream<Rental> rows = ResultStreams.stream(conn -> conn.prepareStatement(sql), fetchSize, RENTAL_MAPPER,
+                "Error streaming rentals with details: ");
+        if (journal == null) {
+            return rows;
+        }
+
+        // Неперенесённые брони - самые новые, идут первыми; остальные изменённые аренды заменяются на месте
+        Map<Integer, Rental> latest;
+        Set<Integer> bookedIds;
+        synchronized (pendingChanges) {
+            if (pendingChanges.isEmpty()) {
+                return rows;
+            }
+            latest = pendingChanges.latestById();
+            bookedIds = pendingChanges.bookedIds();
+        }
+        List<Rental> booked = new ArrayList<>();
+        for (int id : bookedIds) {
+            booked.add(latest.get(id));
+        }
+        booked.sort(BY_CREATED_AT_DESC);
+        return Stream.concat(booked.stream(), rows
+                .filter(rental -> !bookedIds.contains(rental.getId()))
+                .map(rental -> latest.getOrDefault(rental.getId(), rental)));
+    }
+
+    // Схема, на которую опирается листание: created_at NOT NULL и индекс (created_at, id),
+    // по нему страница ищется одинаково быстро, где бы она ни была. Пустые created_at заполняются
+    // MISSING_CREATED_AT; новые аренды получают время вставки. false, если схему подготовить не удалось
+    public boolean ensurePagingSchema() {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement backfill = conn.prepareStatement(
+                         "UPDATE rentals SET created_at = ? WHERE created_at IS NULL");
+                 Statement stmt = conn.createStatement()) {
+                backfill.setTimestamp(1, Timestamp.valueOf(MISSING_CREATED_AT));
+                backfill.executeUpdate();
+                stmt.execute("ALTER TABLE rentals ALTER COLUMN created_at SET DEFAULT CURRENT_TIMESTAMP");
+                stmt.execute("ALTER TABLE rentals ALTER COLUMN created_at SET NOT NULL");
+                stmt.execute("CREATE INDEX IF NOT EXISTS rentals_created_at_id_idx ON rentals (created_at, id)");
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         } catch (SQLException e) {
-            System.out.println("Error getting rentals with details: " + e.getMessage());
+            System.out.println("Error preparing rentals paging schema: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Страница аренд по (created_at, id) от новых к старым; cursor == null - первая страница
+    public Page<Rental> getRentalsPageAfter(String cursor, int pageSize) {
+        LocalDateTime createdAt = null;
+        int id = 0;
+        if (cursor != null) {
+            String[] key = PageCursor.decode(cursor, 2);
+            createdAt = LocalDateTime.parse(key[0]);
+            id = Integer.parseInt(key[1]);
+        }
+
+        String sql = RENTAL_PAGE_SELECT +
+                (cursor != null ? "WHERE (r.created_at, r.id) < (?, ?) " : "") +
+                "ORDER BY r.created_at DESC, r.id DESC LIMIT ?";
+        List<Rental> rentals = queryRentalPage(sql, createdAt, id, pageSize + 1);
+
+        boolean hasMore = rentals.size() > pageSize;
+        List<Rental> items = hasMore ? rentals.subList(0, pageSize) : rentals;
+        String next = hasMore ? rentalCursor(items.get(items.size() - 1)) : null;
+        String previous = cursor != null && !items.isEmpty() ? rentalCursor(items.get(0)) : null;
+        return new Page<>(items, next, previous);
+    }
+
+    public Page<Rental> getRentalsPageBefore(String cursor, int pageSize) {
+        String[] key = PageCursor.decode(cursor, 2);
+        String sql = RENTAL_PAGE_SELECT +
+                "WHERE (r.created_at, r.id) > (?, ?) " +
+                "ORDER BY r.created_at ASC, r.id ASC LIMIT ?";
+        List<Rental> rentals = queryRentalPage(sql, LocalDateTime.parse(key[0]), Integer.parseInt(key[1]),
+                pageSize + 1);
+
+        boolean hasMore = rentals.size() > pageSize;
+        List<Rental> items = new ArrayList<>(hasMore ? rentals.subList(0, pageSize) : rentals);
+        Collections.reverse(items);
+        String next = !items.isEmpty() ? rentalCursor(items.get(items.size() - 1)) : cursor;
+        String previous = hasMore ? rentalCursor(items.get(0)) : null;
+        return new Page<>(items, next, previous);
+    }
+
+    private List<Rental> queryRentalPage(String sql, LocalDateTime createdAt, int id, int limit) {
+        List<Rental> rentals = createdAt != null
+                ? queryRows(sql, RENTAL_MAPPER, "Error getting rentals page: ", Timestamp.valueOf(createdAt), id, limit)
+                : queryRows(sql, RENTAL_MAPPER, "Error getting rentals page: ", limit);
+        if (rentals == null) {
+            return new ArrayList<>();
+        }
+        // Ключ страницы - created_at из базы, поэтому неперенесённые брони появятся после переноса,
+        // а статусы уже изменённых аренд поправляются сразу
+        if (journal != null) {
+            synchronized (pendingChanges) {
+                if (!pendingChanges.isEmpty()) {
+                    Map<Integer, Rental> latest = pendingChanges.latestById();
+                    rentals.replaceAll(rental -> latest.getOrDefault(rental.getId(), rental));
+                }
+            }
         }
         return rentals;
     }
 
+    private static String rentalCursor(Rental rental) {
+        LocalDateTime createdAt = rental.getCreatedAt() != null ? rental.getCreatedAt() : MISSING_CREATED_AT;
+        return PageCursor.encode(createdAt.toString(), String.valueOf(rental.getId()));
+    }
+
     public List<Rental> getRentalsByUser(int userId) {
-        List<Rental> rentals = new ArrayList<>();
-        String sql = "SELECT r.*, " +
-                "c.brand as car_brand, c.model as car_model, c.license_plate as car_license " +
-                "FROM rentals r " +
-                "JOIN cars c ON r.car_id = c.id " +
+        // RENTAL_MAPPER читает username, поэтому нужен join с users
+        String sql = RENTAL_PAGE_SELECT +
                 "WHERE r.user_id = ? " +
-                "ORDER BY r.start_date DESC";
+                "ORDER BY r.start_date DESC, r.id DESC";
+
+        List<Rental> rentals = withPending(queryRows(sql, RENTAL_MAPPER, "Error getting rentals by user: ", userId),
+                rental -> rental.getUserId() == userId, BY_START_DATE_DESC);
+        return rentals != null ? rentals : new ArrayList<>();
+    }
+
+    // История клиента для экрана "Мои аренды", от новых к старым
+    public List<RentalSummary> getRentalSummariesByUser(int userId) {
+        String sql = RENTAL_SUMMARY_SELECT + "WHERE r.user_id = ? ORDER BY r.start_date DESC, r.id DESC";
+        String errorMessage = "Error getting rentals by user: ";
+        if (journal == null) {
+            List<RentalSummary> summaries = queryRows(sql, RENTAL_SUMMARY_MAPPER, errorMessage, userId);
+            return summaries != null ? summaries : new ArrayList<>();
+        }
+
+        List<Rental> rentals = withPending(queryRows(sql, RENTAL_SUMMARY_ROW_MAPPER, errorMessage, userId),
+                rental -> rental.getUserId() == userId, BY_START_DATE_DESC);
+        return rentals != null
+                ? new ArrayList<>(rentals.stream().map(RentalRepository::toSummary).toList())
+                : new ArrayList<>();
+    }
+
+    // ACTIVE-аренды в виде строк списка просрочек, по дате окончания; null при ошибке
+    public List<OverdueRental> getOverdueCandidates() {
+        String sql = OVERDUE_CANDIDATE_SELECT + "ORDER BY r.end_date, r.id";
+        String errorMessage = "Error getting active rentals: ";
+        if (journal == null) {
+            return queryRows(sql, OVERDUE_CANDIDATE_MAPPER, errorMessage);
+        }
+
+        List<Rental> rentals = withPending(queryRows(sql, OVERDUE_CANDIDATE_ROW_MAPPER, errorMessage),
+                rental -> "ACTIVE".equals(rental.getStatus()), BY_END_DATE);
+        return rentals != null
+                ? new ArrayList<>(rentals.stream().map(RentalRepository::toOverdueCandidate).toList())
+                : null;
+    }
+
+    // null, если аренды нет, она не ACTIVE или база недоступна
+    public OverdueRental getOverdueCandidate(int rentalId) {
+        Rental pending = pendingVersion(rentalId);
+        if (pending != null) {
+            return "ACTIVE".equals(pending.getStatus()) ? toOverdueCandidate(pending) : null;
+        }
+        List<OverdueRental> rows = queryRows(OVERDUE_CANDIDATE_SELECT + "AND r.id = ?",
+                OVERDUE_CANDIDATE_MAPPER, "Error getting rental: ", rentalId);
+        return rows == null || rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static RentalSummary toSummary(Rental rental) {
+        return new RentalSummary(rental.getId(), rental.getCarId(), rental.getCarBrand(), rental.getCarModel(),
+                rental.getStartDate(), rental.getEndDate(), rental.getTotalPrice(), rental.getStatus());
+    }
+
+    private static OverdueRental toOverdueCandidate(Rental rental) {
+        return new OverdueRental(rental.getId(), rental.getCustomerName(), rental.getCustomerEmail(),
+                rental.getCarBrand(), rental.getCarModel(), rental.getEndDate(), rental.getTotalPrice());
+    }
+
+    // Аренда, какой её сделают неперенесённые записи журнала, или null, если таких записей нет
+    private Rental pendingVersion(int rentalId) {
+        if (journal == null) {
+            return null;
+        }
+        synchronized (pendingChanges) {
+            return pendingChanges.latest(rentalId);
+        }
+    }
+
+    // Общий запрос списка: параметры по порядку, маппер связывается с результатом один раз; null при ошибке
+    private <T> List<T> queryRows(String sql, RowMapper<T> mapper, String errorMessage, Object... parameters) {
+        List<T> rows = new ArrayList<>();
 
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                rentals.add(mapResultSetToRental(rs));
+            for (int i = 0; i < parameters.length; i++) {
+                pstmt.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<T> rowMapper = mapper.bind(rs);
+                while (rs.next()) {
+                    rows.add(rowMapper.map(rs));
+                }
             }
         } catch (SQLException e) {
-            System.out.println("Error getting rentals by user: " + e.getMessage());
+            System.out.println(errorMessage + e.getMessage());
+            return null;
         }
-        return rentals;
+        return rows;
     }
 
     public List<Rental> searchRentals(String searchTerm) {
         List<Rental> allRentals = getAllRentalsWithDetails();
+        if (allRentals == null) {
+            return new ArrayList<>();
+        }
 
         return allRentals.stream()
                 .filter(rental ->
@@ -72,62 +389,100 @@ public class RentalRepository {
                 .toList();
     }
 
+    // Аренды в одном статусе с данными машины и клиента, по дате окончания; null при ошибке
+    public List<Rental> getRentalsWithDetailsByStatus(String status) {
+        return withPending(queryRows(RENTAL_PAGE_SELECT + "WHERE r.status = ? ORDER BY r.end_date, r.id",
+                RENTAL_MAPPER, "Error getting rentals by status: ", status),
+                rental -> status.equals(rental.getStatus()), BY_END_DATE);
+    }
+
+    public Rental getRentalWithDetails(int rentalId) {
+        Rental pending = pendingVersion(rentalId);
+        if (pending != null) {
+            return pending;
+        }
+        String sql = RENTAL_PAGE_SELECT + "WHERE r.id = ?";
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, rentalId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return RENTAL_MAPPER.map(rs);
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error getting rental: " + e.getMessage());
+        }
+        return null;
+    }
+
     public List<Rental> getActiveRentals() {
-        List<Rental> allRentals = getAllRentalsWithDetails();
+        List<Rental> activeRentals = getRentalsWithDetailsByStatus("ACTIVE");
+        if (activeRentals == null) {
+            return new ArrayList<>();
+        }
         LocalDate today = LocalDate.now();
 
-        return allRentals.stream()
-                .filter(rental -> "ACTIVE".equals(rental.getStatus()))
+        return activeRentals.stream()
                 .filter(rental ->
                         !rental.getStartDate().isAfter(today) &&
                                 !rental.getEndDate().isBefore(today)
                 )
-                .sorted(Comparator.comparing(Rental::getEndDate))
                 .toList();
     }
 
     public List<Rental> getOverdueRentals() {
-        List<Rental> allRentals = getAllRentalsWithDetails();
+        List<Rental> activeRentals = getRentalsWithDetailsByStatus("ACTIVE");
+        if (activeRentals == null) {
+            return new ArrayList<>();
+        }
         LocalDate today = LocalDate.now();
 
-        return allRentals.stream()
-                .filter(rental -> "ACTIVE".equals(rental.getStatus()))
+        return activeRentals.stream()
                 .filter(rental -> rental.getEndDate().isBefore(today))
-                .sorted(Comparator.comparing(Rental::getEndDate))
                 .toList();
     }
 
-    public void printRentalStatistics() {
-        List<Rental> allRentals = getAllRentalsWithDetails();
+    // Итоги, разбивка по статусам и по месяцам (с годом) одним агрегатным запросом; null при ошибке
+    public RentalStatistics getRentalStatistics() {
+        String sql = "SELECT GROUPING(status) AS by_status, GROUPING(month) AS by_month, status, month, " +
+                "COUNT(*) AS rental_count, COALESCE(SUM(total_price), 0) AS revenue " +
+                "FROM (SELECT status, total_price, to_char(start_date, 'YYYY-MM') AS month FROM rentals) r " +
+                "GROUP BY GROUPING SETS ((), (status), (month))";
 
-        if (allRentals.isEmpty()) {
-            System.out.println("No rentals in database.");
-            return;
-        }
+        long totalRentals = 0;
+        double totalRevenue = 0;
+        Map<String, Long> byStatus = new HashMap<>();
+        List<RentalStatistics.MonthlyRevenue> monthly = new ArrayList<>();
 
-        long totalRentals = allRentals.size();
-        long activeRentals = allRentals.stream().filter(r -> "ACTIVE".equals(r.getStatus())).count();
-        long completedRentals = allRentals.stream().filter(r -> "COMPLETED".equals(r.getStatus())).count();
-        double totalRevenue = allRentals.stream().mapToDouble(Rental::getTotalPrice).sum();
-        double avgRentalPrice = allRentals.stream().mapToDouble(Rental::getTotalPrice).average().orElse(0);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                boolean statusRow = rs.getInt("by_status") == 0;
+                boolean monthRow = rs.getInt("by_month") == 0;
+                long count = rs.getLong("rental_count");
+                double revenue = rs.getDouble("revenue");
 
-        System.out.println("\n=== Rental Statistics ===");
-        System.out.println("Total Rentals: " + totalRentals);
-        System.out.println("Active Rentals: " + activeRentals);
-        System.out.println("Completed Rentals: " + completedRentals);
-        System.out.printf("Total Revenue: $%.2f\n", totalRevenue);
-        System.out.printf("Average Rental Price: $%.2f\n", avgRentalPrice);
+                if (statusRow) {
+                    byStatus.put(rs.getString("status"), count);
+                } else if (monthRow) {
+                    monthly.add(new RentalStatistics.MonthlyRevenue(
+                            YearMonth.parse(rs.getString("month")), count, revenue));
+                } else {
+                    totalRentals = count;
+                    totalRevenue = revenue;
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error getting rental statistics: " + e.getMessage());
+            return null;
+        }
 
-        System.out.println("\n=== Monthly Statistics ===");
-        allRentals.stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        rental -> rental.getStartDate().getMonth().toString(),
-                        java.util.stream.Collectors.summarizingDouble(Rental::getTotalPrice)
-                ))
-                .forEach((month, stats) ->
-                        System.out.printf("%-15s: %d rentals, $%.2f revenue\n",
-                                month, stats.getCount(), stats.getSum())
-                );
+        return new RentalStatistics(totalRentals, byStatus, totalRevenue, monthly);
     }
 
     public boolean isCarAvailableForDates(int carId, LocalDate startDate, LocalDate endDate) {
@@ -155,6 +510,140 @@ public class RentalRepository {
         return false;
     }
 
+    // Аренды PENDING/ACTIVE одной машины; null, если запрос не удался
+    public List<Rental> getBlockingRentalsForCar(int carId) {
+        String sql = "SELECT id, car_id, start_date, end_date, status FROM rentals " +
+                "WHERE car_id = ? AND status IN ('PENDING', 'ACTIVE')";
+
+        return withPending(queryRows(sql, BLOCKING_RENTAL_MAPPER, "Error getting rentals for car: ", carId),
+                rental -> isBlocking(rental) && rental.getCarId() == carId, BY_ID);
+    }
+
+    // Аренды PENDING/ACTIVE всех машин, пересекающие период; null, если запрос не удался
+    public List<Rental> getBlockingRentalsBetween(LocalDate from, LocalDate to) {
+        String sql = "SELECT id, car_id, start_date, end_date, status FROM rentals " +
+                "WHERE status IN ('PENDING', 'ACTIVE') AND end_date >= ? AND start_date <= ?";
+
+        return withPending(queryRows(sql, BLOCKING_RENTAL_MAPPER, "Error getting rentals for period: ",
+                Date.valueOf(from), Date.valueOf(to)),
+                rental -> isBlocking(rental) && !rental.getEndDate().isBefore(from) && !rental.getStartDate().isAfter(to),
+                BY_ID);
+    }
+
+    // Проверка пересечений, вставка аренды и снятие флага is_available в одной транзакции.
+    // Строка машины блокируется FOR UPDATE, поэтому две брони одной машины выполняются по очереди
+    // В режиме журнала BOOKED значит "принято в журнал"; ID аренды выдаётся сразу
+    public BookingResult bookCar(Rental rental) {
+        RentalJournal journal = this.journal;
+        if (journal != null) {
+            return bookViaJournal(journal, rental);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                conn.setAutoCommit(false);
+                BookingResult result;
+                try {
+                    result = bookInTransaction(conn, rental);
+                    if (result == BookingResult.BOOKED) {
+                        conn.commit();
+                    } else {
+                        conn.rollback();
+                    }
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+
+                if (result == BookingResult.BOOKED) {
+                    for (RentalChangeListener listener : listeners) {
+                        listener.rentalCreated(rental);
+                    }
+                }
+                return result;
+            } catch (SQLException e) {
+                if (attempt < MAX_BOOKING_ATTEMPTS && isRetryable(e)) {
+                    try {
+                        Thread.sleep(BOOKING_RETRY_BACKOFF_MS * attempt);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return BookingResult.FAILED;
+                    }
+                    continue;
+                }
+                System.out.println("Error booking car: " + e.getMessage());
+                return BookingResult.FAILED;
+            }
+        }
+    }
+
+    private BookingResult bookInTransaction(Connection conn, Rental rental) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET LOCAL lock_timeout = '2s'");
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT is_available FROM cars WHERE id = ? FOR UPDATE")) {
+            pstmt.setInt(1, rental.getCarId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return BookingResult.CAR_NOT_FOUND;
+                }
+                if (!rs.getBoolean("is_available")) {
+                    return BookingResult.CAR_UNAVAILABLE;
+                }
+            }
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT 1 FROM rentals WHERE car_id = ? AND status IN ('PENDING', 'ACTIVE') " +
+                        "AND start_date <= ? AND end_date >= ? LIMIT 1")) {
+            pstmt.setInt(1, rental.getCarId());
+            pstmt.setDate(2, Date.valueOf(rental.getEndDate()));
+            pstmt.setDate(3, Date.valueOf(rental.getStartDate()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return BookingResult.DATES_TAKEN;
+                }
+            }
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO rentals (car_id, user_id, customer_name, customer_email, " +
+                        "start_date, end_date, total_price, status) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, rental.getCarId());
+            pstmt.setInt(2, rental.getUserId());
+            pstmt.setString(3, rental.getCustomerName());
+            pstmt.setString(4, rental.getCustomerEmail());
+            pstmt.setDate(5, Date.valueOf(rental.getStartDate()));
+            pstmt.setDate(6, Date.valueOf(rental.getEndDate()));
+            pstmt.setDouble(7, rental.getTotalPrice());
+            pstmt.setString(8, rental.getStatus());
+            pstmt.executeUpdate();
+
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    rental.setId(rs.getInt(1));
+                }
+            }
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "UPDATE cars SET is_available = false WHERE id = ?")) {
+            pstmt.setInt(1, rental.getCarId());
+            pstmt.executeUpdate();
+        }
+
+        return BookingResult.BOOKED;
+    }
+
+    // Сериализация, дедлок или таймаут блокировки - транзакцию можно повторить
+    private static boolean isRetryable(SQLException e) {
+        String state = e.getSQLState();
+        return "40001".equals(state) || "40P01".equals(state) || "55P03".equals(state);
+    }
+
     public void createRental(Rental rental) {
         String sql = "INSERT INTO rentals (car_id, user_id, customer_name, customer_email, " +
                 "start_date, end_date, total_price, status) " +
@@ -180,43 +669,705 @@ public class RentalRepository {
                         rental.setId(rs.getInt(1));
                     }
                 }
+
+                for (RentalChangeListener listener : listeners) {
+                    listener.rentalCreated(rental);
+                }
             }
         } catch (SQLException e) {
             System.out.println("Error creating rental: " + e.getMessage());
         }
     }
 
-    public void updateRentalStatus(int rentalId, String status) {
-        String sql = "UPDATE rentals SET status = ? WHERE id = ?";
+    // true, если аренда найдена и статус обновлён
+    public boolean updateRentalStatus(int rentalId, String status) {
+        String sql = "UPDATE rentals SET status = ? WHERE id = ? RETURNING car_id, user_id";
 
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, status);
             pstmt.setInt(2, rentalId);
-            pstmt.executeUpdate();
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    int carId = rs.getInt("car_id");
+                    int userId = rs.getInt("user_id");
+                    for (RentalChangeListener listener : listeners) {
+                        listener.rentalStatusChanged(rentalId, carId, userId, status);
+                    }
+                    return true;
+                }
+            }
         } catch (SQLException e) {
             System.out.println("Error updating rental status: " + e.getMessage());
         }
+        return false;
     }
 
-    private Rental mapResultSetToRental(ResultSet rs) throws SQLException {
-        Rental rental = new Rental();
-        rental.setId(rs.getInt("id"));
-        rental.setCarId(rs.getInt("car_id"));
-        rental.setUserId(rs.getInt("user_id"));
-        rental.setCustomerName(rs.getString("customer_name"));
-        rental.setCustomerEmail(rs.getString("customer_email"));
-        rental.setStartDate(rs.getDate("start_date").toLocalDate());
-        rental.setEndDate(rs.getDate("end_date").toLocalDate());
-        rental.setTotalPrice(rs.getDouble("total_price"));
-        rental.setStatus(rs.getString("status"));
+    // Смена статуса у многих аренд в одной транзакции. Для COMPLETED и CANCELLED машины,
+    // у которых не осталось аренд PENDING/ACTIVE, снова помечаются доступными
+    public BulkStatusUpdate updateRentalStatuses(Collection<Integer> rentalIds, String status) {
+        return updateRentalStatuses(rentalIds, null, status);
+    }
 
-        rental.setCarBrand(rs.getString("car_brand"));
-        rental.setCarModel(rs.getString("car_model"));
-        rental.setCarLicensePlate(rs.getString("car_license"));
+    // То же, но затрагивает только аренды указанного пользователя, остальные получат NOT_FOUND
+    public BulkStatusUpdate updateRentalStatusesForUser(Collection<Integer> rentalIds, int userId, String status) {
+        return updateRentalStatuses(rentalIds, userId, status);
+    }
+
+    private BulkStatusUpdate updateRentalStatuses(Collection<Integer> rentalIds, Integer ownerId, String status) {
+        Integer[] ids = rentalIds.stream().distinct().sorted().toArray(Integer[]::new);
+        if (ids.length == 0) {
+            return new BulkStatusUpdate(status, new LinkedHashMap<>(), new ArrayList<>());
+        }
+        RentalJournal journal = this.journal;
+        if (journal != null) {
+            return updateStatusesViaJournal(journal, rentalIds, ids, ownerId, status);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                conn.setAutoCommit(false);
+                List<Rental> changed;
+                BulkStatusUpdate result;
+                try {
+                    changed = new ArrayList<>();
+                    result = updateStatusesInTransaction(conn, rentalIds, ids, ownerId, status, changed);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+
+                for (Rental rental : changed) {
+                    for (RentalChangeListener listener : listeners) {
+                        listener.rentalStatusChanged(rental.getId(), rental.getCarId(), rental.getUserId(), status);
+                    }
+                }
+                return result;
+            } catch (SQLException e) {
+                if (attempt < MAX_BOOKING_ATTEMPTS && isRetryable(e)) {
+                    try {
+                        Thread.sleep(BOOKING_RETRY_BACKOFF_MS * attempt);
+                        continue;
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                } else {
+                    System.out.println("Error updating rental statuses: " + e.getMessage());
+                }
+                Map<Integer, StatusUpdateOutcome> failed = new LinkedHashMap<>();
+                for (Integer id : rentalIds) {
+                    failed.put(id, StatusUpdateOutcome.FAILED);
+                }
+                return new BulkStatusUpdate(status, failed, new ArrayList<>());
+            }
+        }
+    }
+
+    private BulkStatusUpdate updateStatusesInTransaction(Connection conn, Collection<Integer> requested,
+                                                         Integer[] ids, Integer ownerId, String status,
+                                                         List<Rental> changed) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET LOCAL lock_timeout = '2s'");
+        }
+        Array idArray = conn.createArrayOf("integer", ids);
+
+        // Строки блокируются по возрастанию id, чтобы два массовых обновления не зациклились
+        Map<Integer, String> currentStatus = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT id, car_id, user_id, status FROM rentals WHERE id = ANY(?)" +
+                        (ownerId != null ? " AND user_id = ?" : "") +
+                        " ORDER BY id FOR UPDATE")) {
+            pstmt.setArray(1, idArray);
+            if (ownerId != null) {
+                pstmt.setInt(2, ownerId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    currentStatus.put(rs.getInt("id"), rs.getString("status"));
+                    if (!status.equals(rs.getString("status"))) {
+                        Rental rental = new Rental();
+                        rental.setId(rs.getInt("id"));
+                        rental.setCarId(rs.getInt("car_id"));
+                        rental.setUserId(rs.getInt("user_id"));
+                        changed.add(rental);
+                    }
+                }
+            }
+        }
+
+        List<Integer> freedCarIds = new ArrayList<>();
+        if (!changed.isEmpty()) {
+            Integer[] changedIds = changed.stream().map(Rental::getId).toArray(Integer[]::new);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE rentals SET status = ? WHERE id = ANY(?)")) {
+                pstmt.setString(1, status);
+                pstmt.setArray(2, conn.createArrayOf("integer", changedIds));
+                pstmt.executeUpdate();
+            }
+
+            if ("COMPLETED".equals(status) || "CANCELLED".equals(status)) {
+                Integer[] carIds = changed.stream().map(Rental::getCarId).distinct().toArray(Integer[]::new);
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE cars c SET is_available = true " +
+                                "WHERE c.id = ANY(?) AND c.is_available = false " +
+                                "AND NOT EXISTS (SELECT 1 FROM rentals r " +
+                                "WHERE r.car_id = c.id AND r.status IN ('PENDING', 'ACTIVE')) " +
+                                "RETURNING c.id")) {
+                    pstmt.setArray(1, conn.createArrayOf("integer", carIds));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            freedCarIds.add(rs.getInt(1));
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<Integer, StatusUpdateOutcome> outcomes = new LinkedHashMap<>();
+        for (Integer id : requested) {
+            String previous = currentStatus.get(id);
+            if (previous == null) {
+                outcomes.put(id, StatusUpdateOutcome.NOT_FOUND);
+            } else {
+                outcomes.put(id, status.equals(previous) ? StatusUpdateOutcome.UNCHANGED : StatusUpdateOutcome.UPDATED);
+            }
+        }
+        return new BulkStatusUpdate(status, outcomes, freedCarIds);
+    }
+
+    // Бронь в режиме журнала: проверка - чтение из базы с поправкой на неперенесённые изменения,
+    // сама бронь - запись в журнал с заранее выданным ID. Монитор pendingChanges заменяет FOR UPDATE,
+    // поэтому режим рассчитан на один экземпляр приложения; перенос в базу всё равно не вставит
+    // пересекающуюся аренду, а отвергнутую сохранит как CANCELLED (см. applyJournal)
+    private BookingResult bookViaJournal(RentalJournal journal, Rental rental) {
+        Rental accepted = new Rental(rental);
+
+        synchronized (pendingChanges) {
+            try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                BookingResult rejected = checkBookingViaJournal(conn, accepted);
+                if (rejected != null) {
+                    return rejected;
+                }
+                accepted.setId(nextRentalId(conn));
+            } catch (SQLException e) {
+                System.out.println("Error booking car: " + e.getMessage());
+                return BookingResult.FAILED;
+            }
+            accepted.setCreatedAt(LocalDateTime.now());
+
+            long seq;
+            try {
+                seq = journal.appendCreate(accepted, JOURNAL_APPEND_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return BookingResult.FAILED;
+            }
+            if (seq < 0) {
+                System.out.println("Error booking car: rental journal is full");
+                return BookingResult.FAILED;
+            }
+            pendingChanges.booked(seq, accepted);
+        }
+
+        rental.setId(accepted.getId());
+        // Вне монитора: подписчики сами читают аренды через этот репозиторий
+        for (RentalChangeListener listener : listeners) {
+            listener.rentalCreated(accepted);
+        }
+        return BookingResult.BOOKED;
+    }
+
+    // null, если бронь можно принять; заодно заполняет данные машины и клиента, как у RENTAL_MAPPER
+    private BookingResult checkBookingViaJournal(Connection conn, Rental rental) throws SQLException {
+        boolean available;
+        try (PreparedStatement pstmt = conn.prepareStatement(BOOKING_DETAILS_SELECT)) {
+            pstmt.setInt(1, rental.getUserId());
+            pstmt.setInt(2, rental.getCarId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return BookingResult.CAR_NOT_FOUND;
+                }
+                available = rs.getBoolean("is_available");
+                setBookingDetails(rental, rs);
+            }
+        }
+        Boolean pendingAvailable = pendingChanges.availabilityOf(rental.getCarId());
+        if (!(pendingAvailable != null ? pendingAvailable : available)) {
+            return BookingResult.CAR_UNAVAILABLE;
+        }
+
+        List<Rental> overlapping = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT id, car_id, start_date, end_date, status FROM rentals " +
+                        "WHERE car_id = ? AND status IN ('PENDING', 'ACTIVE') AND start_date <= ? AND end_date >= ?")) {
+            pstmt.setInt(1, rental.getCarId());
+            pstmt.setDate(2, Date.valueOf(rental.getEndDate()));
+            pstmt.setDate(3, Date.valueOf(rental.getStartDate()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<Rental> mapper = BLOCKING_RENTAL_MAPPER.bind(rs);
+                while (rs.next()) {
+                    overlapping.add(mapper.map(rs));
+                }
+            }
+        }
+        overlapping = pendingChanges.merge(overlapping, other -> isBlocking(other)
+                && other.getCarId() == rental.getCarId()
+                && !other.getStartDate().isAfter(rental.getEndDate())
+                && !other.getEndDate().isBefore(rental.getStartDate()), BY_ID);
+        return overlapping.isEmpty() ? null : BookingResult.DATES_TAKEN;
+    }
+
+    private static void setBookingDetails(Rental rental, ResultSet rs) throws SQLException {
+        rental.setCarBrand(rs.getString("brand"));
+        rental.setCarModel(rs.getString("model"));
+        rental.setCarLicensePlate(rs.getString("license_plate"));
         rental.setUsername(rs.getString("username"));
+    }
+
+    // ID броней режима журнала берутся из последовательности rentals пачками по RENTAL_ID_BLOCK;
+    // вызывается под монитором pendingChanges. Невыданные после рестарта ID просто пропадают
+    private int nextRentalId(Connection conn) throws SQLException {
+        if (reservedRentalIds.isEmpty()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT nextval(pg_get_serial_sequence('rentals', 'id')) FROM generate_series(1, ?)")) {
+                pstmt.setInt(1, RENTAL_ID_BLOCK);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        reservedRentalIds.addLast(rs.getInt(1));
+                    }
+                }
+            }
+        }
+        Integer id = reservedRentalIds.pollFirst();
+        if (id == null) {
+            throw new SQLException("Rental id sequence returned no values");
+        }
+        return id;
+    }
+
+    // Массовая смена статусов в режиме журнала: исходы и освобождаемые машины считаются по тем же правилам,
+    // что и в транзакции, но по чтению из базы с поправкой на неперенесённые изменения
+    private BulkStatusUpdate updateStatusesViaJournal(RentalJournal journal, Collection<Integer> requested,
+                                                      Integer[] ids, Integer ownerId, String status) {
+        boolean freesCars = "COMPLETED".equals(status) || "CANCELLED".equals(status);
+        Set<Integer> idSet = new HashSet<>(List.of(ids));
+        List<Rental> journaled = new ArrayList<>();
+        BulkStatusUpdate result;
+
+        synchronized (pendingChanges) {
+            Map<Integer, String> currentStatus = new HashMap<>();
+            List<Rental> changed = new ArrayList<>();
+            Map<Integer, Boolean> carAvailable = new HashMap<>();
+            List<Rental> blocking = new ArrayList<>();
+
+            try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                List<Rental> rows = new ArrayList<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(RENTAL_PAGE_SELECT + "WHERE r.id = ANY(?)" +
+                        (ownerId != null ? " AND r.user_id = ?" : ""))) {
+                    pstmt.setArray(1, conn.createArrayOf("integer", ids));
+                    if (ownerId != null) {
+                        pstmt.setInt(2, ownerId);
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        RowMapper<Rental> mapper = RENTAL_MAPPER.bind(rs);
+                        while (rs.next()) {
+                            rows.add(mapper.map(rs));
+                        }
+                    }
+                }
+                // Аренда может быть ещё только в журнале - например, её отменяют сразу после брони
+                rows = pendingChanges.merge(rows, rental -> idSet.contains(rental.getId())
+                        && (ownerId == null || rental.getUserId() == ownerId), BY_ID);
+                for (Rental rental : rows) {
+                    currentStatus.put(rental.getId(), rental.getStatus());
+                    if (!status.equals(rental.getStatus())) {
+                        changed.add(rental);
+                    }
+                }
+
+                if (freesCars && !changed.isEmpty()) {
+                    Array carIds = conn.createArrayOf("integer",
+                            changed.stream().map(Rental::getCarId).distinct().toArray(Integer[]::new));
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "SELECT id, is_available FROM cars WHERE id = ANY(?)")) {
+                        pstmt.setArray(1, carIds);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                carAvailable.put(rs.getInt(1), rs.getBoolean(2));
+                            }
+                        }
+                    }
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "SELECT id, car_id, start_date, end_date, status FROM rentals " +
+                                    "WHERE car_id = ANY(?) AND status IN ('PENDING', 'ACTIVE')")) {
+                        pstmt.setArray(1, carIds);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            RowMapper<Rental> mapper = BLOCKING_RENTAL_MAPPER.bind(rs);
+                            while (rs.next()) {
+                                blocking.add(mapper.map(rs));
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                System.out.println("Error updating rental statuses: " + e.getMessage());
+                Map<Integer, StatusUpdateOutcome> failed = new LinkedHashMap<>();
+                for (Integer id : requested) {
+                    failed.put(id, StatusUpdateOutcome.FAILED);
+                }
+                return new BulkStatusUpdate(status, failed, new ArrayList<>());
+            }
+
+            // Пишем по возрастанию id; если журнал переполнен, остальные аренды получат FAILED
+            Map<Integer, Long> lastSeqByCar = new LinkedHashMap<>();
+            for (Rental rental : changed) {
+                long seq;
+                try {
+                    seq = journal.appendStatus(rental.getId(), status, JOURNAL_APPEND_TIMEOUT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (seq < 0) {
+                    System.out.println("Error updating rental statuses: rental journal is full");
+                    break;
+                }
+                rental.setStatus(status);
+                pendingChanges.statusChanged(seq, rental);
+                journaled.add(rental);
+                lastSeqByCar.put(rental.getCarId(), seq);
+            }
+
+            List<Integer> freedCarIds = new ArrayList<>();
+            if (freesCars && !lastSeqByCar.isEmpty()) {
+                // Уже с только что принятыми статусами и ещё не перенесёнными бронями
+                Set<Integer> blockedCars = new HashSet<>();
+                for (Rental rental : pendingChanges.merge(blocking,
+                        rental -> isBlocking(rental) && lastSeqByCar.containsKey(rental.getCarId()), BY_ID)) {
+                    blockedCars.add(rental.getCarId());
+                }
+                for (Map.Entry<Integer, Long> car : lastSeqByCar.entrySet()) {
+                    int carId = car.getKey();
+                    Boolean pendingAvailable = pendingChanges.availabilityOf(carId);
+                    boolean available = pendingAvailable != null ? pendingAvailable : carAvailable.getOrDefault(carId, true);
+                    if (!available && !blockedCars.contains(carId)) {
+                        pendingChanges.carFreed(car.getValue(), carId);
+                        freedCarIds.add(carId);
+                    }
+                }
+            }
+
+            Set<Integer> journaledIds = new HashSet<>();
+            for (Rental rental : journaled) {
+                journaledIds.add(rental.getId());
+            }
+            Map<Integer, StatusUpdateOutcome> outcomes = new LinkedHashMap<>();
+            for (Integer id : requested) {
+                String previous = currentStatus.get(id);
+                if (previous == null) {
+                    outcomes.put(id, StatusUpdateOutcome.NOT_FOUND);
+                } else if (status.equals(previous)) {
+                    outcomes.put(id, StatusUpdateOutcome.UNCHANGED);
+                } else {
+                    outcomes.put(id, journaledIds.contains(id) ? StatusUpdateOutcome.UPDATED : StatusUpdateOutcome.FAILED);
+                }
+            }
+            result = new BulkStatusUpdate(status, outcomes, freedCarIds);
+        }
+
+        for (Rental rental : journaled) {
+            for (RentalChangeListener listener : listeners) {
+                listener.rentalStatusChanged(rental.getId(), rental.getCarId(), rental.getUserId(), status);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isBlocking(Rental rental) {
+        return "PENDING".equals(rental.getStatus()) || "ACTIVE".equals(rental.getStatus());
+    }
+
+    // Чтения с поправкой на принятые, но ещё не перенесённые изменения журнала; без журнала - как есть
+    private List<Rental> withPending(List<Rental> rows, Predicate<Rental> matches, Comparator<Rental> order) {
+        if (rows == null || journal == null) {
+            return rows;
+        }
+        synchronized (pendingChanges) {
+            return pendingChanges.merge(rows, matches, order);
+        }
+    }
+
+    // После рестарта: неприменённые записи журнала должны учитываться проверками и чтениями с первого запроса
+    void restoreJournal(List<RentalJournal.Entry> entries) throws SQLException {
+        Map<Integer, Rental> latest = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            Integer[] changedIds = entries.stream()
+                    .filter(entry -> entry.type == RentalJournal.STATUS)
+                    .map(entry -> entry.rentalId)
+                    .distinct()
+                    .toArray(Integer[]::new);
+            if (changedIds.length > 0) {
+                try (PreparedStatement pstmt = conn.prepareStatement(RENTAL_PAGE_SELECT + "WHERE r.id = ANY(?)")) {
+                    pstmt.setArray(1, conn.createArrayOf("integer", changedIds));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        RowMapper<Rental> mapper = RENTAL_MAPPER.bind(rs);
+                        while (rs.next()) {
+                            Rental rental = mapper.map(rs);
+                            latest.put(rental.getId(), rental);
+                        }
+                    }
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(BOOKING_DETAILS_SELECT)) {
+                for (RentalJournal.Entry entry : entries) {
+                    if (entry.type != RentalJournal.CREATE) {
+                        continue;
+                    }
+                    Rental rental = new Rental(entry.rental);
+                    pstmt.setInt(1, rental.getUserId());
+                    pstmt.setInt(2, rental.getCarId());
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) {
+                            setBookingDetails(rental, rs);
+                        }
+                    }
+                    rental.setCreatedAt(LocalDateTime.now());
+                    latest.put(rental.getId(), rental);
+                }
+            }
+        }
+
+        // Освобождение машин по восстановленным записям не предсказываем: до переноса они остаются занятыми
+        synchronized (pendingChanges) {
+            for (RentalJournal.Entry entry : entries) {
+                if (entry.type == RentalJournal.CREATE) {
+                    pendingChanges.booked(entry.seq, latest.get(entry.rental.getId()));
+                } else if (entry.type == RentalJournal.STATUS && latest.containsKey(entry.rentalId)) {
+                    Rental rental = new Rental(latest.get(entry.rentalId));
+                    rental.setStatus(entry.status);
+                    latest.put(rental.getId(), rental);
+                    pendingChanges.statusChanged(entry.seq, rental);
+                }
+            }
+        }
+    }
+
+    // Писатель перенёс (или отбросил) записи журнала до seq включительно
+    void journalApplied(long seq) {
+        synchronized (pendingChanges) {
+            pendingChanges.applied(seq);
+        }
+    }
+
+    // Отметка журнала: seq последней записи, уже перенесённой в базу
+    long getJournalCheckpoint(String journalName) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS rental_journal (" +
+                        "name VARCHAR(64) PRIMARY KEY, applied_seq BIGINT NOT NULL)");
+                stmt.execute("CREATE TABLE IF NOT EXISTS rental_journal_rejects (" +
+                        "journal_name VARCHAR(64) NOT NULL, seq BIGINT NOT NULL, " +
+                        "record_type SMALLINT NOT NULL, rental_id INTEGER NOT NULL, " +
+                        "reason VARCHAR(255) NOT NULL, rejected_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                        "PRIMARY KEY (journal_name, seq))");
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT applied_seq FROM rental_journal WHERE name = ?")) {
+                pstmt.setString(1, journalName);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0;
+                }
+            }
+        }
+    }
+
+    // Брони, которые писатель журнала не смог перенести как есть, от новых к старым; без журнала - пусто
+    public List<Rental> getJournalRejectedRentals() {
+        if (journal == null) {
+            return new ArrayList<>();
+        }
+        List<Rental> rentals = queryRows(RENTAL_PAGE_SELECT +
+                        "JOIN rental_journal_rejects j ON j.rental_id = r.id AND j.record_type = " + RentalJournal.CREATE +
+                        " ORDER BY j.rejected_at DESC, r.id DESC",
+                RENTAL_MAPPER, "Error getting rejected rentals: ");
+        return rentals != null ? rentals : new ArrayList<>();
+    }
+
+    // Пачка записей журнала и новая отметка - одной транзакцией; подписчики узнают после коммита
+    // (второй раз: о принятом изменении им сообщили ещё при приёме). Доступность машин подписчики
+    // тоже уже получили при приёме (RentalService). Возвращает число отвергнутых броней
+    int applyJournal(String journalName, List<RentalJournal.Entry> entries) throws SQLException {
+        // Защита от пересечения на случай, если бронь прошла мимо проверки (например, второй экземпляр)
+        String insertSql = "INSERT INTO rentals (id, car_id, user_id, customer_name, customer_email, " +
+                "start_date, end_date, total_price, status) " +
+                "SELECT ?, ?, ?, ?, ?, ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM rentals " +
+                "WHERE car_id = ? AND status IN ('PENDING', 'ACTIVE') AND start_date <= ? AND end_date >= ?)";
+        // Отвергнутая бронь остаётся под своим ID как CANCELLED: клиент видит её в истории, персонал - в отказах
+        String rejectSql = "INSERT INTO rentals (id, car_id, user_id, customer_name, customer_email, " +
+                "start_date, end_date, total_price, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 'CANCELLED')";
+        String updateSql = "UPDATE rentals SET status = ? WHERE id = ? RETURNING car_id, user_id";
+        String reserveSql = "UPDATE cars SET is_available = false WHERE id = ANY(?)";
+        String releaseSql = "UPDATE cars c SET is_available = true " +
+                "WHERE c.id = ANY(?) AND c.is_available = false " +
+                "AND NOT EXISTS (SELECT 1 FROM rentals r " +
+                "WHERE r.car_id = c.id AND r.status IN ('PENDING', 'ACTIVE'))";
+        String checkpointSql = "INSERT INTO rental_journal (name, applied_seq) VALUES (?, ?) " +
+                "ON CONFLICT (name) DO UPDATE SET applied_seq = EXCLUDED.applied_seq";
+
+        List<RentalJournal.Entry> batched = new ArrayList<>();
+        List<Rental> created = new ArrayList<>();
+        List<Rental> rejected = new ArrayList<>();
+        List<int[]> changed = new ArrayList<>();
+        List<String> changedStatuses = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement(insertSql);
+                 PreparedStatement reject = conn.prepareStatement(rejectSql);
+                 PreparedStatement rejectLog = conn.prepareStatement(REJECT_LOG_SQL);
+                 PreparedStatement update = conn.prepareStatement(updateSql);
+                 PreparedStatement reserve = conn.prepareStatement(reserveSql);
+                 PreparedStatement release = conn.prepareStatement(releaseSql);
+                 PreparedStatement checkpoint = conn.prepareStatement(checkpointSql)) {
+
+                for (RentalJournal.Entry entry : entries) {
+                    if (entry.type == RentalJournal.CREATE) {
+                        Rental rental = entry.rental;
+                        setRentalColumns(insert, rental);
+                        insert.setString(9, rental.getStatus());
+                        insert.setInt(10, rental.getCarId());
+                        insert.setDate(11, Date.valueOf(rental.getEndDate()));
+                        insert.setDate(12, Date.valueOf(rental.getStartDate()));
+                        insert.addBatch();
+                        batched.add(entry);
+                    }
+                }
+                if (!batched.isEmpty()) {
+                    int[] counts = insert.executeBatch();
+                    for (int i = 0; i < batched.size(); i++) {
+                        RentalJournal.Entry entry = batched.get(i);
+                        if (counts[i] != 0) {
+                            created.add(entry.rental);
+                            continue;
+                        }
+                        setRentalColumns(reject, entry.rental);
+                        reject.addBatch();
+                        rejectLog.setString(1, journalName);
+                        rejectLog.setLong(2, entry.seq);
+                        rejectLog.setInt(3, entry.type);
+                        rejectLog.setInt(4, entry.rental.getId());
+                        rejectLog.setString(5, "dates " + entry.rental.getStartDate() + " - "
+                                + entry.rental.getEndDate() + " are taken");
+                        rejectLog.addBatch();
+                        rejected.add(entry.rental);
+                    }
+                    if (!rejected.isEmpty()) {
+                        reject.executeBatch();
+                        rejectLog.executeBatch();
+                    }
+                    if (!created.isEmpty()) {
+                        reserve.setArray(1, conn.createArrayOf("integer",
+                                created.stream().map(Rental::getCarId).distinct().toArray(Integer[]::new)));
+                        reserve.executeUpdate();
+                    }
+                }
+
+                // Статусы - по порядку журнала: у одной аренды их может быть несколько
+                for (RentalJournal.Entry entry : entries) {
+                    if (entry.type == RentalJournal.STATUS) {
+                        update.setString(1, entry.status);
+                        update.setInt(2, entry.rentalId);
+                        try (ResultSet rs = update.executeQuery()) {
+                            if (rs.next()) {
+                                changed.add(new int[]{entry.rentalId, rs.getInt("car_id"), rs.getInt("user_id")});
+                                changedStatuses.add(entry.status);
+                            }
+                        }
+                    }
+                }
+
+                List<Integer> releasedCars = new ArrayList<>();
+                for (int i = 0; i < changed.size(); i++) {
+                    String status = changedStatuses.get(i);
+                    if ("COMPLETED".equals(status) || "CANCELLED".equals(status)) {
+                        releasedCars.add(changed.get(i)[1]);
+                    }
+                }
+                if (!releasedCars.isEmpty()) {
+                    release.setArray(1, conn.createArrayOf("integer",
+                            releasedCars.stream().distinct().toArray(Integer[]::new)));
+                    release.executeUpdate();
+                }
+
+                checkpoint.setString(1, journalName);
+                checkpoint.setLong(2, entries.get(entries.size() - 1).seq);
+                checkpoint.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        for (Rental rental : created) {
+            for (RentalChangeListener listener : listeners) {
+                listener.rentalCreated(rental);
+            }
+        }
+        for (Rental rental : rejected) {
+            System.out.println("Rejected journaled rental " + rental.getId() + " for car " + rental.getCarId() +
+                    ": dates " + rental.getStartDate() + " - " + rental.getEndDate() + " are taken");
+            for (RentalChangeListener listener : listeners) {
+                listener.rentalStatusChanged(rental.getId(), rental.getCarId(), rental.getUserId(), "CANCELLED");
+            }
+        }
+        for (int i = 0; i < changed.size(); i++) {
+            int[] ids = changed.get(i);
+            for (RentalChangeListener listener : listeners) {
+                listener.rentalStatusChanged(ids[0], ids[1], ids[2], changedStatuses.get(i));
+            }
+        }
+        return rejected.size();
+    }
+
+    // Запись, которую база отвергла целиком (писатель её пропускает), - в журнал отказов.
+    // Бронь из такой записи в базе не появится, поэтому подписчики узнают о ней как об отменённой
+    void recordJournalReject(String journalName, RentalJournal.Entry entry, String reason) {
+        int rentalId = entry.type == RentalJournal.CREATE ? entry.rental.getId() : entry.rentalId;
+        String text = reason != null ? reason : "rejected by database";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(REJECT_LOG_SQL + " ON CONFLICT DO NOTHING")) {
+            pstmt.setString(1, journalName);
+            pstmt.setLong(2, entry.seq);
+            pstmt.setInt(3, entry.type);
+            pstmt.setInt(4, rentalId);
+            pstmt.setString(5, text.length() > 255 ? text.substring(0, 255) : text);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.out.println("Error recording rejected journal record " + entry.seq + ": " + e.getMessage());
+        }
+
+        if (entry.type == RentalJournal.CREATE) {
+            Rental rental = entry.rental;
+            for (RentalChangeListener listener : listeners) {
+                listener.rentalStatusChanged(rental.getId(), rental.getCarId(), rental.getUserId(), "CANCELLED");
+            }
+        }
+    }
 
-        return rental;
+    // Колонки 1-8 вставки аренды с заранее выданным ID, без статуса
+    private static void setRentalColumns(PreparedStatement pstmt, Rental rental) throws SQLException {
+        pstmt.setInt(1, rental.getId());
+        pstmt.setInt(2, rental.getCarId());
+        pstmt.setInt(3, rental.getUserId());
+        pstmt.setString(4, rental.getCustomerName());
+        pstmt.setString(5, rental.getCustomerEmail());
+        pstmt.setDate(6, Date.valueOf(rental.getStartDate()));
+        pstmt.setDate(7, Date.valueOf(rental.getEndDate()));
+        pstmt.setDouble(8, rental.getTotalPrice());
     }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package repositories;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Ограниченный пул для асинхронных запросов к базе. Потоков не больше, чем соединений в пуле,
+// чтобы задачи не стояли в очереди за соединением, заняв поток
+public class RepositoryExecutor {
+    private final ThreadPoolExecutor executor;
+
+    public RepositoryExecutor(int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "repository-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Переполненная очередь не бросает исключение вызывающему, а завершает future с ошибкой
+    public <T> CompletableFuture<T> submit(Supplier<T> query) {
+        try {
+            return CompletableFuture.supplyAsync(query, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
\ No newline at end of file
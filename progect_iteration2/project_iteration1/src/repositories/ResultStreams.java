@@ -0,0 +1,94 @@
+package repositories;
+
+import database.DatabaseConnection;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Ленивый Stream поверх серверного курсора: строки подтягиваются порциями по fetchSize.
+// Соединение держится, пока stream не закрыт, поэтому вызывающий обязан закрыть его (try-with-resources)
+final class ResultStreams {
+    static final int DEFAULT_FETCH_SIZE = 500;
+
+    @FunctionalInterface
+    interface StatementFactory {
+        PreparedStatement prepare(Connection conn) throws SQLException;
+    }
+
+    private ResultStreams() {}
+
+    static <T> Stream<T> stream(StatementFactory factory, int fetchSize, RowMapper<T> mapper, String errorMessage) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive");
+        }
+
+        Connection conn = DatabaseConnection.getInstance().getConnection();
+        if (conn == null) {
+            return Stream.empty();
+        }
+
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        RowMapper<T> rowMapper;
+        try {
+            // pgjdbc открывает курсор только вне режима auto-commit
+            conn.setAutoCommit(false);
+            pstmt = factory.prepare(conn);
+            pstmt.setFetchSize(fetchSize);
+            rs = pstmt.executeQuery();
+            rowMapper = mapper.bind(rs);
+        } catch (SQLException e) {
+            System.out.println(errorMessage + e.getMessage());
+            closeQuietly(rs, pstmt, conn);
+            return Stream.empty();
+        }
+
+        ResultSet resultSet = rs;
+        PreparedStatement statement = pstmt;
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+                    action.accept(rowMapper.map(resultSet));
+                    return true;
+                } catch (SQLException e) {
+                    System.out.println(errorMessage + e.getMessage());
+                    return false;
+                }
+            }
+        };
+
+        return StreamSupport.stream(rows, false)
+                .onClose(() -> closeQuietly(resultSet, statement, conn));
+    }
+
+    private static void closeQuietly(ResultSet rs, PreparedStatement pstmt, Connection conn) {
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+            if (pstmt != null) {
+                pstmt.close();
+            }
+        } catch (SQLException e) {
+            System.out.println("Error closing cursor: " + e.getMessage());
+        } finally {
+            try {
+                // Пул откатит незавершённую транзакцию и вернёт auto-commit
+                conn.close();
+            } catch (SQLException e) {
+                System.out.println("Error releasing connection: " + e.getMessage());
+            }
+        }
+    }
+}
\ No newline at end of file
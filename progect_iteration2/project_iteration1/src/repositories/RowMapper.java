@@ -0,0 +1,32 @@
+package repositories;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Function;
+
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+
+    // Маппер для всех строк этого результата; вызывается один раз перед циклом по строкам
+    default RowMapper<T> bind(ResultSet rs) throws SQLException {
+        return this;
+    }
+
+    // Маппер в другой тип, например в неизменяемую проекцию через её конструктор; bind сохраняется
+    default <R> RowMapper<R> andThen(Function<? super T, ? extends R> after) {
+        RowMapper<T> source = this;
+        return new RowMapper<R>() {
+            @Override
+            public R map(ResultSet rs) throws SQLException {
+                return after.apply(source.map(rs));
+            }
+
+            @Override
+            public RowMapper<R> bind(ResultSet rs) throws SQLException {
+                RowMapper<T> bound = source.bind(rs);
+                return row -> after.apply(bound.map(row));
+            }
+        };
+    }
+}
\ No newline at end of file
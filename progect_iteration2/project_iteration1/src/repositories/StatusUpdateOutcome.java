@@ -0,0 +1,9 @@
+package repositories;
+
+public enum StatusUpdateOutcome {
+    UPDATED,
+    // Аренда уже была в этом статусе
+    UNCHANGED,
+    NOT_FOUND,
+    FAILED
+}
\ No newline at end of file
@@ -8,6 +8,14 @@ import java.util.List;
 import java.util.Optional;
 
 public class UserRepository {
+    private static final EntityMapper<User> USER_MAPPER = EntityMapper.builder(User::new)
+            .column("id", (user, rs, i) -> user.setId(rs.getInt(i)))
+            .column("username", (user, rs, i) -> user.setUsername(rs.getString(i)))
+            .column("password", (user, rs, i) -> user.setPassword(rs.getString(i)))
+            .column("email", (user, rs, i) -> user.setEmail(rs.getString(i)))
+            .column("full_name", (user, rs, i) -> user.setFullName(rs.getString(i)))
+            .column("role", (user, rs, i) -> user.setRole(rs.getString(i)))
+            .build();
 
     public void createUser(User user) {
         String sql = "INSERT INTO users (username, password, email, full_name, role) " +
@@ -54,17 +62,10 @@ public class UserRepository {
             pstmt.setString(1, username);
             pstmt.setString(2, password);
 
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                User user = new User();
-                user.setId(rs.getInt("id"));
-                user.setUsername(rs.getString("username"));
-                user.setPassword(rs.getString("password"));
-                user.setEmail(rs.getString("email"));
-                user.setFullName(rs.getString("full_name"));
-                user.setRole(rs.getString("role"));
-                return Optional.of(user);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(USER_MAPPER.map(rs));
+                }
             }
         } catch (SQLException e) {
             System.out.println("Error authenticating user: " + e.getMessage());
@@ -81,15 +82,9 @@ public class UserRepository {
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
+            RowMapper<User> mapper = USER_MAPPER.bind(rs);
             while (rs.next()) {
-                User user = new User();
-                user.setId(rs.getInt("id"));
-                user.setUsername(rs.getString("username"));
-                user.setPassword(rs.getString("password"));
-                user.setEmail(rs.getString("email"));
-                user.setFullName(rs.getString("full_name"));
-                user.setRole(rs.getString("role"));
-                users.add(user);
+                users.add(mapper.map(rs));
             }
         } catch (SQLException e) {
             System.out.println("Error getting all users: " + e.getMessage());
@@ -98,6 +93,23 @@ public class UserRepository {
         return users;
     }
 
+    // Число пользователей с ролью без загрузки самих записей; 0 при ошибке
+    public int countUsersByRole(String role) {
+        String sql = "SELECT COUNT(*) FROM users WHERE role = ?";
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, role);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            System.out.println("Error counting users: " + e.getMessage());
+        }
+        return 0;
+    }
+
     public List<User> getUsersByRole(String role) {
         List<User> allUsers = getAllUsers();
         return allUsers.stream()
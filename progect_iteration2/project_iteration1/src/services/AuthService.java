@@ -1,22 +1,87 @@
 package services;
 
+import entities.Permission;
+import entities.Role;
 import entities.User;
 import repositories.UserRepository;
 import java.util.Optional;
 
+// Методы с токеном обслуживают любое число пользователей одновременно.
+// Методы без токена работают с сессией консольного пользователя
 public class AuthService {
+    private static final long DEFAULT_IDLE_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final long DEFAULT_REAP_PERIOD_MS = 60 * 1000L;
+
     private UserRepository userRepository;
-    private User currentUser;
+    private SessionStore sessionStore;
+    private volatile String consoleToken;
 
     public AuthService(UserRepository userRepository) {
+        this(userRepository, new SessionStore(DEFAULT_IDLE_TIMEOUT_MS, DEFAULT_REAP_PERIOD_MS));
+    }
+
+    public AuthService(UserRepository userRepository, SessionStore sessionStore) {
         this.userRepository = userRepository;
+        this.sessionStore = sessionStore;
+    }
+
+    // Токен новой сессии или пусто, если логин или пароль неверны
+    public Optional<String> openSession(String username, String password) {
+        return userRepository.authenticateUser(username, password)
+                .map(user -> sessionStore.create(user).getToken());
+    }
+
+    public void closeSession(String token) {
+        sessionStore.invalidate(token);
+    }
+
+    public User getUser(String token) {
+        Session session = sessionStore.get(token);
+        return session != null ? session.getUser() : null;
+    }
+
+    public boolean isLoggedIn(String token) {
+        return sessionStore.get(token) != null;
+    }
+
+    public boolean hasPermission(String token, String requiredRole) {
+        Session session = sessionStore.get(token);
+        return session != null && session.hasPermission(requiredRole);
+    }
+
+    public boolean can(String token, Permission permission) {
+        Session session = sessionStore.get(token);
+        return session != null && session.can(permission);
+    }
+
+    public boolean hasRole(String token, Role required) {
+        Session session = sessionStore.get(token);
+        return session != null && session.hasRole(required);
+    }
+
+    public boolean isAdmin(String token) {
+        Session session = sessionStore.get(token);
+        return session != null && session.isAdmin();
+    }
+
+    public boolean canViewAllRentals(String token) {
+        return can(token, Permission.VIEW_ALL_RENTALS);
+    }
+
+    public boolean canManageCars(String token) {
+        return can(token, Permission.MANAGE_CARS);
+    }
+
+    public SessionStore getSessionStore() {
+        return sessionStore;
     }
 
     public boolean login(String username, String password) {
-        Optional<User> userOpt = userRepository.authenticateUser(username, password);
+        Optional<String> token = openSession(username, password);
 
-        if (userOpt.isPresent()) {
-            this.currentUser = userOpt.get();
+        if (token.isPresent()) {
+            sessionStore.invalidate(consoleToken);
+            this.consoleToken = token.get();
             return true;
         }
 
@@ -24,37 +89,39 @@ public class AuthService {
     }
 
     public void logout() {
-        this.currentUser = null;
+        sessionStore.invalidate(consoleToken);
+        this.consoleToken = null;
     }
 
     public User getCurrentUser() {
-        return currentUser;
+        return getUser(consoleToken);
     }
 
     public boolean isLoggedIn() {
-        return currentUser != null;
+        return isLoggedIn(consoleToken);
     }
 
     public boolean hasPermission(String requiredRole) {
-        if (currentUser == null) {
-            return false;
-        }
-        return currentUser.hasPermission(requiredRole);
+        return hasPermission(consoleToken, requiredRole);
     }
 
     public boolean isAdmin() {
-        return currentUser != null && currentUser.isAdmin();
+        return isAdmin(consoleToken);
+    }
+
+    public boolean can(Permission permission) {
+        return can(consoleToken, permission);
     }
 
     public boolean isStaffOrHigher() {
-        return hasPermission("STAFF");
+        return hasRole(consoleToken, Role.STAFF);
     }
 
     public boolean canViewAllRentals() {
-        return hasPermission("STAFF");
+        return canViewAllRentals(consoleToken);
     }
 
     public boolean canManageCars() {
-        return hasPermission("STAFF");
+        return canManageCars(consoleToken);
     }
 }
\ No newline at end of file
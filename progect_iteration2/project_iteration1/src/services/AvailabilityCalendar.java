@@ -0,0 +1,328 @@
+package services;
+
+import entities.Car;
+import entities.Rental;
+import repositories.CarChangeListener;
+import repositories.CarRepository;
+import repositories.RentalChangeListener;
+import repositories.RentalRepository;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Календарь занятости всего парка: на каждую машину битовая строка из horizonDays дней начиная с сегодня.
+// Строка машины лежит в bits[carId * wordsPerCar ...], бит = день занят аренды PENDING/ACTIVE
+public class AvailabilityCalendar implements RentalChangeListener, CarChangeListener {
+    private static final Comparator<Car> BY_PRICE = Comparator.comparingDouble(Car::getDailyPrice)
+            .thenComparing(Car::getBrand)
+            .thenComparing(Car::getModel);
+
+    private final CarRepository carRepository;
+    private final RentalRepository rentalRepository;
+    private final AvailabilityEngine availabilityEngine;
+    private final int horizonDays;
+    private final int wordsPerCar;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long baseDay;
+    private long[] bits = new long[0];
+    private Car[] cars = new Car[0];
+    // carId -> rentalId -> {startDay, endDay}; нужно, чтобы пересчитать строку при отмене аренды
+    private final Map<Integer, Map<Integer, long[]>> rentalsByCar = new HashMap<>();
+
+    public AvailabilityCalendar(CarRepository carRepository, RentalRepository rentalRepository,
+                                AvailabilityEngine availabilityEngine, int horizonDays) {
+        if (horizonDays <= 0) {
+            throw new IllegalArgumentException("Horizon must be positive");
+        }
+        this.carRepository = carRepository;
+        this.rentalRepository = rentalRepository;
+        this.availabilityEngine = availabilityEngine;
+        this.horizonDays = horizonDays;
+        this.wordsPerCar = (horizonDays + 63) / 64;
+    }
+
+    public void rebuild() {
+        LocalDate today = LocalDate.now();
+        List<Car> catalog = carRepository.getAllCarsWithCategory();
+        List<Rental> rentals = rentalRepository.getBlockingRentalsBetween(today, today.plusDays(horizonDays - 1));
+        if (rentals == null) {
+            rentals = new ArrayList<>();
+        }
+
+        lock.writeLock().lock();
+        try {
+            baseDay = today.toEpochDay();
+            int maxId = 0;
+            for (Car car : catalog) {
+                maxId = Math.max(maxId, car.getId());
+            }
+            cars = new Car[maxId + 1];
+            bits = new long[(maxId + 1) * wordsPerCar];
+            rentalsByCar.clear();
+
+            for (Car car : catalog) {
+                cars[car.getId()] = new Car(car);
+            }
+            for (Rental rental : rentals) {
+                track(rental.getCarId(), rental.getId(),
+                        rental.getStartDate().toEpochDay(), rental.getEndDate().toEpochDay());
+            }
+            for (int carId : rentalsByCar.keySet()) {
+                recomputeRow(carId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Доступные машины, свободные на весь период; categoryName, minPrice и maxPrice необязательны (null)
+    public List<Car> findFreeCars(LocalDate startDate, LocalDate endDate,
+                                  String categoryName, Double minPrice, Double maxPrice) {
+        rollIfNeeded();
+
+        List<Car> result = new ArrayList<>();
+        List<Car> beyondHorizon = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            // Период целиком в прошлом - бронировать нечего
+            if (endDate.toEpochDay() < baseDay) {
+                return result;
+            }
+            long from = Math.max(startDate.toEpochDay(), baseDay) - baseDay;
+            long to = endDate.toEpochDay() - baseDay;
+            boolean exceedsHorizon = to >= horizonDays;
+            to = Math.min(to, horizonDays - 1);
+            boolean inHorizon = from <= to;
+
+            int firstWord = inHorizon ? (int) (from >>> 6) : 0;
+            int lastWord = inHorizon ? (int) (to >>> 6) : 0;
+            long[] mask = new long[lastWord - firstWord + 1];
+            if (inHorizon) {
+                for (int w = firstWord; w <= lastWord; w++) {
+                    long wordStart = (long) w << 6;
+                    int lo = (int) Math.max(from - wordStart, 0);
+                    int hi = (int) Math.min(to - wordStart, 63);
+                    mask[w - firstWord] = (-1L >>> (63 - hi)) & (-1L << lo);
+                }
+            }
+
+            for (int carId = 0; carId < cars.length; carId++) {
+                Car car = cars[carId];
+                // Снятый флаг is_available bookCar отвергает, как и раньше getAvailableCars()
+                if (car == null || !car.isAvailable() || !matches(car, categoryName, minPrice, maxPrice)) {
+                    continue;
+                }
+                int offset = carId * wordsPerCar;
+                long busy = 0;
+                for (int w = firstWord; w <= lastWord && busy == 0; w++) {
+                    busy |= bits[offset + w] & mask[w - firstWord];
+                }
+                if (busy == 0) {
+                    (exceedsHorizon ? beyondHorizon : result).add(car);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Хвост периода за горизонтом календаря проверяем поштучно
+        for (Car car : beyondHorizon) {
+            if (availabilityEngine.isCarAvailableForDates(car.getId(), startDate, endDate)) {
+                result.add(car);
+            }
+        }
+
+        result.sort(BY_PRICE);
+        return result;
+    }
+
+    public int getHorizonDays() {
+        return horizonDays;
+    }
+
+    @Override
+    public void rentalCreated(Rental rental) {
+        if (!"PENDING".equals(rental.getStatus()) && !"ACTIVE".equals(rental.getStatus())) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(rental.getCarId());
+            track(rental.getCarId(), rental.getId(),
+                    rental.getStartDate().toEpochDay(), rental.getEndDate().toEpochDay());
+            setBits(rental.getCarId(), rental.getStartDate().toEpochDay(), rental.getEndDate().toEpochDay());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void rentalStatusChanged(int rentalId, int carId, int userId, String status) {
+        boolean blocking = "PENDING".equals(status) || "ACTIVE".equals(status);
+
+        lock.writeLock().lock();
+        try {
+            Map<Integer, long[]> carRentals = rentalsByCar.get(carId);
+            boolean known = carRentals != null && carRentals.containsKey(rentalId);
+            if (blocking == known) {
+                return;
+            }
+            if (!blocking) {
+                carRentals.remove(rentalId);
+                recomputeRow(carId);
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Аренда снова заблокировала машину, а её дат у нас нет - перечитываем машину целиком
+        reloadCar(carId);
+    }
+
+    @Override
+    public void carSaved(Car car) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(car.getId());
+            cars[car.getId()] = new Car(car);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void carAvailabilityChanged(int carId, boolean isAvailable) {
+        lock.writeLock().lock();
+        try {
+            if (carId < cars.length && cars[carId] != null) {
+                Car updated = new Car(cars[carId]);
+                updated.setAvailable(isAvailable);
+                cars[carId] = updated;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reloadCar(int carId) {
+        List<Rental> rentals = rentalRepository.getBlockingRentalsForCar(carId);
+        if (rentals == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(carId);
+            rentalsByCar.remove(carId);
+            for (Rental rental : rentals) {
+                track(carId, rental.getId(), rental.getStartDate().toEpochDay(), rental.getEndDate().toEpochDay());
+            }
+            recomputeRow(carId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Наступил новый день - сдвигаем горизонт, пересобирая строки из уже известных аренд.
+    // Аренды, начинающиеся в открывшихся днях, rebuild() не загружал - дочитываем их из базы
+    private void rollIfNeeded() {
+        long today = LocalDate.now().toEpochDay();
+        long previousBase;
+
+        lock.readLock().lock();
+        try {
+            if (today == baseDay) {
+                return;
+            }
+            previousBase = baseDay;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long lastDay = today + horizonDays - 1;
+        long tailStart = today < previousBase ? today : Math.max(previousBase + horizonDays, today);
+        List<Rental> tail = tailStart <= lastDay
+                ? rentalRepository.getBlockingRentalsBetween(LocalDate.ofEpochDay(tailStart),
+                        LocalDate.ofEpochDay(lastDay))
+                : List.of();
+        if (tail == null) {
+            // Горизонт не сдвигаем: дни за ним проверит AvailabilityEngine, повторим при следующем запросе
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (today == baseDay) {
+                return;
+            }
+            baseDay = today;
+            for (Rental rental : tail) {
+                track(rental.getCarId(), rental.getId(),
+                        rental.getStartDate().toEpochDay(), rental.getEndDate().toEpochDay());
+            }
+            Arrays.fill(bits, 0L);
+            for (Map.Entry<Integer, Map<Integer, long[]>> entry : rentalsByCar.entrySet()) {
+                entry.getValue().values().removeIf(days -> days[1] < today);
+                recomputeRow(entry.getKey());
+            }
+            rentalsByCar.values().removeIf(Map::isEmpty);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void track(int carId, int rentalId, long startDay, long endDay) {
+        rentalsByCar.computeIfAbsent(carId, id -> new HashMap<>()).put(rentalId, new long[]{startDay, endDay});
+    }
+
+    private void recomputeRow(int carId) {
+        if (carId * wordsPerCar >= bits.length) {
+            return;
+        }
+        int offset = carId * wordsPerCar;
+        Arrays.fill(bits, offset, offset + wordsPerCar, 0L);
+
+        Map<Integer, long[]> carRentals = rentalsByCar.get(carId);
+        if (carRentals != null) {
+            for (long[] days : carRentals.values()) {
+                setBits(carId, days[0], days[1]);
+            }
+        }
+    }
+
+    private void setBits(int carId, long startDay, long endDay) {
+        long from = Math.max(startDay - baseDay, 0);
+        long to = Math.min(endDay - baseDay, horizonDays - 1);
+        int offset = carId * wordsPerCar;
+        for (long day = from; day <= to; day++) {
+            bits[offset + (int) (day >>> 6)] |= 1L << (day & 63);
+        }
+    }
+
+    private void ensureCapacity(int carId) {
+        if (carId < cars.length) {
+            return;
+        }
+        int newLength = Math.max(carId + 1, cars.length * 2);
+        cars = Arrays.copyOf(cars, newLength);
+        bits = Arrays.copyOf(bits, newLength * wordsPerCar);
+    }
+
+    private static boolean matches(Car car, String categoryName, Double minPrice, Double maxPrice) {
+        if (categoryName != null && !categoryName.equalsIgnoreCase(car.getCategoryName())) {
+            return false;
+        }
+        if (minPrice != null && car.getDailyPrice() < minPrice) {
+            return false;
+        }
+        return maxPrice == null || car.getDailyPrice() <= maxPrice;
+    }
+}
\ No newline at end of file
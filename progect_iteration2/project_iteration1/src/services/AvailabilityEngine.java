@@ -0,0 +1,121 @@
+package services;
+
+import entities.Rental;
+import repositories.RentalChangeListener;
+import repositories.RentalRepository;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Проверка занятости машины по датам без похода в базу.
+// Для каждой машины лениво строится дерево интервалов её PENDING/ACTIVE аренд
+public class AvailabilityEngine implements RentalChangeListener {
+    private final RentalRepository rentalRepository;
+    private final ConcurrentHashMap<Integer, CarSchedule> schedules = new ConcurrentHashMap<>();
+
+    public AvailabilityEngine(RentalRepository rentalRepository) {
+        this.rentalRepository = rentalRepository;
+    }
+
+    public boolean isCarAvailableForDates(int carId, LocalDate startDate, LocalDate endDate) {
+        CarSchedule schedule = getSchedule(carId);
+        if (schedule == null) {
+            // Не смогли загрузить аренды машины - спрашиваем базу напрямую
+            return rentalRepository.isCarAvailableForDates(carId, startDate, endDate);
+        }
+        return schedule.isFree(startDate.toEpochDay(), endDate.toEpochDay());
+    }
+
+    public void invalidate(int carId) {
+        schedules.remove(carId);
+    }
+
+    public void invalidateAll() {
+        schedules.clear();
+    }
+
+    public int loadedCars() {
+        return schedules.size();
+    }
+
+    @Override
+    public void rentalCreated(Rental rental) {
+        if (!isBlocking(rental.getStatus())) {
+            return;
+        }
+        // Незагруженную машину не трогаем: при первом запросе её аренды прочитаются из базы
+        schedules.computeIfPresent(rental.getCarId(), (carId, schedule) -> {
+            schedule.add(rental.getId(), rental.getStartDate().toEpochDay(), rental.getEndDate().toEpochDay());
+            return schedule;
+        });
+    }
+
+    @Override
+    public void rentalStatusChanged(int rentalId, int carId, int userId, String status) {
+        schedules.computeIfPresent(carId, (id, schedule) -> {
+            if (isBlocking(status)) {
+                // Аренда снова стала активной, а её дат у нас нет - перечитаем машину
+                return schedule.contains(rentalId) ? schedule : null;
+            }
+            schedule.remove(rentalId);
+            return schedule;
+        });
+    }
+
+    private CarSchedule getSchedule(int carId) {
+        CarSchedule schedule = schedules.get(carId);
+        if (schedule != null) {
+            return schedule;
+        }
+        // Загрузка идёт под блокировкой ключа, поэтому событие, пришедшее во время загрузки,
+        // применится уже к загруженному расписанию и не потеряется
+        return schedules.computeIfAbsent(carId, this::loadSchedule);
+    }
+
+    private CarSchedule loadSchedule(int carId) {
+        List<Rental> rentals = rentalRepository.getBlockingRentalsForCar(carId);
+        if (rentals == null) {
+            return null;
+        }
+
+        CarSchedule schedule = new CarSchedule();
+        for (Rental rental : rentals) {
+            schedule.add(rental.getId(), rental.getStartDate().toEpochDay(), rental.getEndDate().toEpochDay());
+        }
+        return schedule;
+    }
+
+    private static boolean isBlocking(String status) {
+        return "PENDING".equals(status) || "ACTIVE".equals(status);
+    }
+
+    private static class CarSchedule {
+        private final IntervalTree tree = new IntervalTree();
+        private final Map<Integer, Long> startByRental = new HashMap<>();
+
+        synchronized boolean isFree(long start, long end) {
+            return !tree.overlaps(start, end);
+        }
+
+        synchronized boolean contains(int rentalId) {
+            return startByRental.containsKey(rentalId);
+        }
+
+        synchronized void add(int rentalId, long start, long end) {
+            Long previousStart = startByRental.put(rentalId, start);
+            if (previousStart != null) {
+                tree.remove(rentalId, previousStart);
+            }
+            tree.insert(rentalId, start, end);
+        }
+
+        synchronized void remove(int rentalId) {
+            Long start = startByRental.remove(rentalId);
+            if (start != null) {
+                tree.remove(rentalId, start);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package services;
+
+public class CacheMetrics {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long rejections;
+    private final long invalidations;
+    private final int size;
+    private final int maxSize;
+
+    public CacheMetrics(long hits, long misses, long evictions, long rejections,
+                        long invalidations, int size, int maxSize) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.rejections = rejections;
+        this.invalidations = invalidations;
+        this.size = size;
+        this.maxSize = maxSize;
+    }
+
+    public long getHits() { return hits; }
+
+    public long getMisses() { return misses; }
+
+    public long getEvictions() { return evictions; }
+
+    // Сколько загруженных значений не попало в кэш, потому что встречались реже вытесняемого
+    public long getRejections() { return rejections; }
+
+    public long getInvalidations() { return invalidations; }
+
+    public int getSize() { return size; }
+
+    public int getMaxSize() { return maxSize; }
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Cache[size=%d/%d, hits=%d, misses=%d, hitRatio=%.2f, evictions=%d, " +
+                        "rejections=%d, invalidations=%d]",
+                size, maxSize, hits, misses, getHitRatio(), evictions, rejections, invalidations);
+    }
+}
\ No newline at end of file
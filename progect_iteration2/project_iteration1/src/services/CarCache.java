@@ -0,0 +1,234 @@
+package services;
+
+import entities.Car;
+import repositories.CarChangeListener;
+import repositories.CarRepository;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read-through кэш машин по ID и списка доступных машин.
+// Чтение без блокировок; при переполнении новая машина вытесняет самую старую,
+// только если по частотному счётчику её спрашивали чаще (иначе в кэш не попадает)
+public class CarCache implements CarChangeListener {
+    private static final int SKETCH_DEPTH = 4;
+
+    private final CarRepository carRepository;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final ConcurrentHashMap<Integer, CachedCar> cars = new ConcurrentHashMap<>();
+    // Порядок добавления для выбора кандидата на вытеснение; меняется только под this
+    private final LinkedHashSet<Integer> insertionOrder = new LinkedHashSet<>();
+    private volatile CachedList availableCars;
+
+    // Count-min sketch частот обращений; счётчики периодически делятся пополам, чтобы старая популярность угасала
+    private final AtomicIntegerArray sketch;
+    private final int sketchMask;
+    private final LongAdder sketchAdditions = new LongAdder();
+    private final int sketchResetThreshold;
+
+    // Растёт при каждой инвалидации: загрузка, начатая до неё, не должна попасть в кэш
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CarCache(CarRepository carRepository, int maxSize, long ttlMillis) {
+        if (maxSize <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Cache size and TTL must be positive");
+        }
+        this.carRepository = carRepository;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+
+        int width = Integer.highestOneBit(Math.max(maxSize, 16) * 2 - 1) * 2;
+        this.sketch = new AtomicIntegerArray(width * SKETCH_DEPTH);
+        this.sketchMask = width - 1;
+        this.sketchResetThreshold = maxSize * 10;
+    }
+
+    // Машина по ID (копия, её можно менять); null, если машины нет или база недоступна
+    public Car getCarById(int carId) {
+        recordAccess(carId);
+
+        CachedCar cached = cars.get(carId);
+        long now = System.currentTimeMillis();
+        if (cached != null) {
+            if (now < cached.expiresAt) {
+                hits.increment();
+                return new Car(cached.car);
+            }
+            remove(carId, cached);
+        }
+        misses.increment();
+
+        long versionBeforeLoad = version.get();
+        Car car = carRepository.getCarById(carId);
+        if (car != null) {
+            admit(carId, new CachedCar(new Car(car), now + ttlMillis), versionBeforeLoad);
+        }
+        return car;
+    }
+
+    // Доступные машины по возрастанию цены (копии)
+    public List<Car> getAvailableCars() {
+        CachedList cached = availableCars;
+        long now = System.currentTimeMillis();
+        if (cached != null && now < cached.expiresAt) {
+            hits.increment();
+            return copyOf(cached.cars);
+        }
+        misses.increment();
+
+        long versionBeforeLoad = version.get();
+        List<Car> loaded = carRepository.getAvailableCars();
+        // Пустой список может означать ошибку запроса - такой не кэшируем
+        if (!loaded.isEmpty()) {
+            synchronized (this) {
+                if (version.get() == versionBeforeLoad) {
+                    availableCars = new CachedList(copyOf(loaded), now + ttlMillis);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    public synchronized void invalidate(int carId) {
+        version.incrementAndGet();
+        invalidations.increment();
+        if (cars.remove(carId) != null) {
+            insertionOrder.remove(carId);
+        }
+        availableCars = null;
+    }
+
+    public synchronized void invalidateAll() {
+        version.incrementAndGet();
+        invalidations.increment();
+        cars.clear();
+        insertionOrder.clear();
+        availableCars = null;
+    }
+
+    public CacheMetrics getMetrics() {
+        return new CacheMetrics(hits.sum(), misses.sum(), evictions.sum(), rejections.sum(),
+                invalidations.sum(), cars.size(), maxSize);
+    }
+
+    @Override
+    public void carSaved(Car car) {
+        invalidate(car.getId());
+    }
+
+    @Override
+    public void carAvailabilityChanged(int carId, boolean isAvailable) {
+        invalidate(carId);
+    }
+
+    private synchronized void admit(int carId, CachedCar entry, long versionBeforeLoad) {
+        if (version.get() != versionBeforeLoad) {
+            return;
+        }
+        if (cars.containsKey(carId)) {
+            cars.put(carId, entry);
+            return;
+        }
+
+        if (cars.size() >= maxSize) {
+            Iterator<Integer> oldest = insertionOrder.iterator();
+            Integer victim = oldest.next();
+            if (frequency(carId) <= frequency(victim)) {
+                // Вытесняемую машину спрашивают не реже - оставляем её, но отправляем в конец очереди
+                rejections.increment();
+                oldest.remove();
+                insertionOrder.add(victim);
+                return;
+            }
+            oldest.remove();
+            cars.remove(victim);
+            evictions.increment();
+        }
+
+        cars.put(carId, entry);
+        insertionOrder.add(carId);
+    }
+
+    private synchronized void remove(int carId, CachedCar expired) {
+        if (cars.remove(carId, expired)) {
+            insertionOrder.remove(carId);
+        }
+    }
+
+    private void recordAccess(int carId) {
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            int index = row * (sketchMask + 1) + (hash(carId, row) & sketchMask);
+            if (sketch.get(index) < Integer.MAX_VALUE) {
+                sketch.incrementAndGet(index);
+            }
+        }
+        sketchAdditions.increment();
+        if (sketchAdditions.sum() >= sketchResetThreshold) {
+            age();
+        }
+    }
+
+    private int frequency(int carId) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            min = Math.min(min, sketch.get(row * (sketchMask + 1) + (hash(carId, row) & sketchMask)));
+        }
+        return min;
+    }
+
+    private synchronized void age() {
+        if (sketchAdditions.sum() < sketchResetThreshold) {
+            return;
+        }
+        for (int i = 0; i < sketch.length(); i++) {
+            sketch.set(i, sketch.get(i) >>> 1);
+        }
+        sketchAdditions.reset();
+    }
+
+    private static int hash(int key, int row) {
+        int h = key * (0x9E3779B9 + row * 0x632BE5AB);
+        return h ^ (h >>> 16);
+    }
+
+    private static List<Car> copyOf(List<Car> source) {
+        List<Car> copy = new ArrayList<>(source.size());
+        for (Car car : source) {
+            copy.add(new Car(car));
+        }
+        return copy;
+    }
+
+    private static class CachedCar {
+        private final Car car;
+        private final long expiresAt;
+
+        CachedCar(Car car, long expiresAt) {
+            this.car = car;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class CachedList {
+        private final List<Car> cars;
+        private final long expiresAt;
+
+        CachedList(List<Car> cars, long expiresAt) {
+            this.cars = cars;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,231 @@
+package services;
+
+import entities.Car;
+import repositories.CarChangeListener;
+import repositories.CarRepository;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Триграммный инвертированный индекс по марке, модели, номеру и категории.
+// Ищет подстроку так же, как CarRepository.searchCars, но без похода в базу
+public class CarSearchIndex implements CarChangeListener {
+    private static final char FIELD_SEPARATOR = '\u0000';
+    private static final Comparator<Car> BY_PRICE = Comparator.comparingDouble(Car::getDailyPrice)
+            .thenComparing(Car::getBrand)
+            .thenComparing(Car::getModel);
+
+    private final CarRepository carRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, IndexedCar> cars = new HashMap<>();
+    private final Map<Long, Set<Integer>> postings = new HashMap<>();
+
+    // Буфер для нормализации запроса, чтобы не создавать строки на каждое нажатие клавиши
+    private final ThreadLocal<char[]> queryBuffer = ThreadLocal.withInitial(() -> new char[64]);
+
+    public CarSearchIndex(CarRepository carRepository) {
+        this.carRepository = carRepository;
+    }
+
+    public void rebuild() {
+        List<Car> catalog = carRepository.getAllCarsWithCategory();
+
+        lock.writeLock().lock();
+        try {
+            cars.clear();
+            postings.clear();
+            for (Car car : catalog) {
+                add(new Car(car));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Возвращает копии: машины индекса не должны меняться снаружи
+    public List<Car> search(String searchTerm) {
+        char[] query = normalize(searchTerm);
+        int length = searchTerm.length();
+
+        lock.readLock().lock();
+        try {
+            List<Car> results = new ArrayList<>();
+
+            if (length < 3) {
+                // Триграмм нет - перебираем каталог в памяти
+                for (IndexedCar indexed : cars.values()) {
+                    if (contains(indexed.text, query, length)) {
+                        results.add(new Car(indexed.car));
+                    }
+                }
+            } else {
+                Set<Integer> candidates = smallestPosting(query, length);
+                if (candidates != null) {
+                    for (Integer carId : candidates) {
+                        IndexedCar indexed = cars.get(carId);
+                        if (indexed != null && contains(indexed.text, query, length)) {
+                            results.add(new Car(indexed.car));
+                        }
+                    }
+                }
+            }
+
+            results.sort(BY_PRICE);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return cars.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void carSaved(Car car) {
+        lock.writeLock().lock();
+        try {
+            remove(car.getId());
+            add(new Car(car));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void carAvailabilityChanged(int carId, boolean isAvailable) {
+        lock.writeLock().lock();
+        try {
+            IndexedCar indexed = cars.get(carId);
+            if (indexed != null) {
+                // Текстовые поля не менялись, триграммы пересчитывать не нужно
+                Car updated = new Car(indexed.car);
+                updated.setAvailable(isAvailable);
+                cars.put(carId, new IndexedCar(updated, indexed.text));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Car car) {
+        String text = indexText(car);
+        cars.put(car.getId(), new IndexedCar(car, text));
+
+        for (int i = 0; i + 2 < text.length(); i++) {
+            if (text.charAt(i) == FIELD_SEPARATOR || text.charAt(i + 1) == FIELD_SEPARATOR
+                    || text.charAt(i + 2) == FIELD_SEPARATOR) {
+                continue;
+            }
+            long key = trigram(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2));
+            postings.computeIfAbsent(key, k -> new HashSet<>()).add(car.getId());
+        }
+    }
+
+    private void remove(int carId) {
+        IndexedCar indexed = cars.remove(carId);
+        if (indexed == null) {
+            return;
+        }
+
+        String text = indexed.text;
+        for (int i = 0; i + 2 < text.length(); i++) {
+            long key = trigram(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2));
+            Set<Integer> ids = postings.get(key);
+            if (ids != null) {
+                ids.remove(carId);
+                if (ids.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    // Кандидаты берём из самого короткого списка, остальное отсекает проверка contains
+    private Set<Integer> smallestPosting(char[] query, int length) {
+        Set<Integer> smallest = null;
+        for (int i = 0; i + 2 < length; i++) {
+            Set<Integer> ids = postings.get(trigram(query[i], query[i + 1], query[i + 2]));
+            if (ids == null) {
+                return null;
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        return smallest;
+    }
+
+    private char[] normalize(String searchTerm) {
+        int length = searchTerm.length();
+        char[] buffer = queryBuffer.get();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+            queryBuffer.set(buffer);
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[i] = Character.toLowerCase(searchTerm.charAt(i));
+        }
+        return buffer;
+    }
+
+    private static boolean contains(String text, char[] query, int length) {
+        if (length == 0) {
+            return true;
+        }
+        int last = text.length() - length;
+        for (int start = 0; start <= last; start++) {
+            int i = 0;
+            while (i < length && text.charAt(start + i) == query[i]) {
+                i++;
+            }
+            if (i == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long trigram(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    private static String indexText(Car car) {
+        StringBuilder text = new StringBuilder();
+        appendField(text, car.getBrand());
+        appendField(text, car.getModel());
+        appendField(text, car.getLicensePlate());
+        appendField(text, car.getCategoryName());
+        return text.toString();
+    }
+
+    private static void appendField(StringBuilder text, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            text.append(Character.toLowerCase(value.charAt(i)));
+        }
+        text.append(FIELD_SEPARATOR);
+    }
+
+    private static class IndexedCar {
+        private final Car car;
+        private final String text;
+
+        IndexedCar(Car car, String text) {
+            this.car = car;
+            this.text = text;
+        }
+    }
+}
\ No newline at end of file
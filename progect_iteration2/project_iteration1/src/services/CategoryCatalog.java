@@ -0,0 +1,103 @@
+package services;
+
+import entities.Category;
+import repositories.CategoryRepository;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Справочник категорий в памяти. Читатели берут текущий неизменяемый снимок без блокировок,
+// обновление строит новый снимок и подменяет ссылку целиком
+public class CategoryCatalog {
+    private final CategoryRepository categoryRepository;
+    private volatile Snapshot snapshot = new Snapshot(new ArrayList<>());
+    private ScheduledExecutorService refresher;
+
+    public CategoryCatalog(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    // false, если база ничего не вернула - тогда остаётся прежний снимок
+    public boolean refresh() {
+        List<Category> categories = categoryRepository.getAllCategories();
+        if (categories.isEmpty() && !snapshot.categories.isEmpty()) {
+            return false;
+        }
+        snapshot = new Snapshot(categories);
+        return true;
+    }
+
+    public synchronized void startAutoRefresh(long periodMillis) {
+        if (refresher != null) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "category-catalog-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopAutoRefresh() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+
+    // Категории по имени (копии)
+    public List<Category> getCategories() {
+        List<Category> result = new ArrayList<>();
+        for (Category category : snapshot.categories) {
+            result.add(new Category(category));
+        }
+        return result;
+    }
+
+    // null, если категории с таким ID нет
+    public String getName(int categoryId) {
+        Category category = snapshot.byId.get(categoryId);
+        return category != null ? category.getName() : null;
+    }
+
+    // Поиск по имени без учёта регистра; null, если категории нет
+    public Category findByName(String name) {
+        if (name == null) {
+            return null;
+        }
+        Category category = snapshot.byName.get(name.trim().toLowerCase(Locale.ROOT));
+        return category != null ? new Category(category) : null;
+    }
+
+    public int size() {
+        return snapshot.categories.size();
+    }
+
+    private static class Snapshot {
+        private final List<Category> categories;
+        private final Map<Integer, Category> byId;
+        private final Map<String, Category> byName;
+
+        Snapshot(List<Category> loaded) {
+            List<Category> categories = new ArrayList<>();
+            Map<Integer, Category> byId = new HashMap<>();
+            Map<String, Category> byName = new HashMap<>();
+            for (Category category : loaded) {
+                Category copy = new Category(category);
+                categories.add(copy);
+                byId.put(copy.getId(), copy);
+                byName.put(copy.getName().toLowerCase(Locale.ROOT), copy);
+            }
+            this.categories = Collections.unmodifiableList(categories);
+            this.byId = Collections.unmodifiableMap(byId);
+            this.byName = Collections.unmodifiableMap(byName);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,235 @@
+package services;
+
+import entities.Car;
+import entities.Category;
+import repositories.CarBatchWriter;
+import repositories.CarRepository;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Импорт парка из CSV. Файл читается построчно, в памяти только номера уже известных машин.
+// Заголовок обязателен: brand, model, license_plate, year, category, daily_price и необязательный is_available;
+// category - имя или ID категории. Отклонённые строки пишутся в rejects с колонкой reject_reason
+public class FleetImporter {
+    private static final String[] REQUIRED_COLUMNS = {"brand", "model", "license_plate", "year", "category", "daily_price"};
+
+    private final CarRepository carRepository;
+    private final CategoryCatalog categoryCatalog;
+
+    public FleetImporter(CarRepository carRepository, CategoryCatalog categoryCatalog) {
+        this.carRepository = carRepository;
+        this.categoryCatalog = categoryCatalog;
+    }
+
+    public ImportReport importCsv(Path source, Path rejects, int batchSize, int commitInterval)
+            throws IOException, SQLException {
+        long startedAt = System.nanoTime();
+
+        Set<String> knownPlates = carRepository.getLicensePlates();
+        if (knownPlates == null) {
+            throw new SQLException("Could not load existing license plates");
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+             RejectsFile rejectsFile = new RejectsFile(rejects)) {
+
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new IllegalArgumentException("CSV file is empty");
+            }
+            Map<String, Integer> columns = parseHeader(headerLine);
+            rejectsFile.setHeader(headerLine);
+
+            int maxYear = Year.now().getValue() + 1;
+            long rowsRead = 0;
+            long duplicates = 0;
+            CarBatchWriter writer = carRepository.openBatchWriter(batchSize, commitInterval, rejectsFile::write);
+            try (writer) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    rowsRead++;
+
+                    Car car;
+                    try {
+                        car = parseCar(parseLine(line), columns, maxYear);
+                    } catch (IllegalArgumentException e) {
+                        rejectsFile.write(line, e.getMessage());
+                        continue;
+                    }
+
+                    if (!knownPlates.add(CarRepository.normalizeLicensePlate(car.getLicensePlate()))) {
+                        duplicates++;
+                        rejectsFile.write(line, "Duplicate license plate");
+                        continue;
+                    }
+                    writer.add(car, line);
+                }
+            }
+            // close() коммитит последнюю пачку, поэтому счётчик читаем после него
+            long inserted = writer.getInserted();
+
+            long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+            return new ImportReport(rowsRead, inserted, rejectsFile.count, duplicates, elapsedMillis);
+        }
+    }
+
+    private static Map<String, Integer> parseHeader(String headerLine) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = parseLine(headerLine);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("Missing column: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private Car parseCar(List<String> fields, Map<String, Integer> columns, int maxYear) {
+        String brand = field(fields, columns, "brand");
+        String model = field(fields, columns, "model");
+        String licensePlate = field(fields, columns, "license_plate");
+        if (brand.isEmpty() || model.isEmpty() || licensePlate.isEmpty()) {
+            throw new IllegalArgumentException("Brand, model and license plate are required");
+        }
+
+        int year;
+        double dailyPrice;
+        try {
+            year = Integer.parseInt(field(fields, columns, "year"));
+            dailyPrice = Double.parseDouble(field(fields, columns, "daily_price"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + e.getMessage());
+        }
+        if (year < 1900 || year > maxYear) {
+            throw new IllegalArgumentException("Invalid year: " + year);
+        }
+        if (!(dailyPrice > 0)) {
+            throw new IllegalArgumentException("Daily price must be positive");
+        }
+
+        Category category = resolveCategory(field(fields, columns, "category"));
+        if (category == null) {
+            throw new IllegalArgumentException("Unknown category: " + field(fields, columns, "category"));
+        }
+
+        Car car = new Car(brand, model, licensePlate, year, category.getId(), dailyPrice);
+        car.setCategoryName(category.getName());
+        if (columns.containsKey("is_available")) {
+            String available = field(fields, columns, "is_available");
+            if (!available.isEmpty()) {
+                car.setAvailable(Boolean.parseBoolean(available) || "1".equals(available));
+            }
+        }
+        return car;
+    }
+
+    private Category resolveCategory(String value) {
+        Category byName = categoryCatalog.findByName(value);
+        if (byName != null || value.isEmpty() || !Character.isDigit(value.charAt(0))) {
+            return byName;
+        }
+        try {
+            int categoryId = Integer.parseInt(value);
+            String name = categoryCatalog.getName(categoryId);
+            if (name == null) {
+                return null;
+            }
+            Category category = new Category(name, null);
+            category.setId(categoryId);
+            return category;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        int index = columns.get(name);
+        return index < fields.size() ? fields.get(index).trim() : "";
+    }
+
+    // Поля через запятую; поле в кавычках может содержать запятые и удвоенные кавычки
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Файл отказов создаётся только при первой плохой строке
+    private static class RejectsFile implements AutoCloseable {
+        private final Path path;
+        private String header;
+        private BufferedWriter writer;
+        private long count;
+
+        RejectsFile(Path path) {
+            this.path = path;
+        }
+
+        void setHeader(String header) {
+            this.header = header;
+        }
+
+        void write(String line, String reason) {
+            count++;
+            try {
+                if (writer == null) {
+                    writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+                    writer.write(header + ",reject_reason");
+                    writer.newLine();
+                }
+                writer.write(line + ",\"" + String.valueOf(reason).replace("\"", "\"\"") + "\"");
+                writer.newLine();
+            } catch (IOException e) {
+                System.out.println("Error writing rejects file: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package services;
+
+import java.util.Map;
+
+// Согласованный срез статистики парка: все значения посчитаны под одним замком FleetStatistics
+public class FleetSnapshot {
+    private final long totalCars;
+    private final long availableCars;
+    private final double averagePrice;
+    private final double minPrice;
+    private final double maxPrice;
+    private final Map<String, Long> carsByCategory;
+
+    public FleetSnapshot(long totalCars, long availableCars, double averagePrice,
+                         double minPrice, double maxPrice, Map<String, Long> carsByCategory) {
+        this.totalCars = totalCars;
+        this.availableCars = availableCars;
+        this.averagePrice = averagePrice;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.carsByCategory = carsByCategory;
+    }
+
+    public long getTotalCars() { return totalCars; }
+
+    public long getAvailableCars() { return availableCars; }
+
+    public double getAveragePrice() { return averagePrice; }
+
+    public double getMinPrice() { return minPrice; }
+
+    public double getMaxPrice() { return maxPrice; }
+
+    // Категория -> количество машин, по алфавиту; машины без категории не учитываются
+    public Map<String, Long> getCarsByCategory() { return carsByCategory; }
+
+    public boolean isEmpty() { return totalCars == 0; }
+}
\ No newline at end of file
@@ -0,0 +1,97 @@
+package services;
+
+import entities.Car;
+import repositories.CarChangeListener;
+import repositories.CarRepository;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Живая статистика парка: один раз загружается из базы, дальше обновляется событиями CarRepository.
+// Цены считаются в центах, чтобы сумма не накапливала ошибку округления при прибавлениях и вычитаниях.
+// Изменение машины трогает несколько счётчиков сразу, поэтому все поля меняются и читаются под this:
+// читатель получает срез, в котором итоги согласованы между собой
+public class FleetStatistics implements CarChangeListener {
+    private final CarRepository carRepository;
+
+    private long totalCars;
+    private long availableCars;
+    private long priceCentsSum;
+    private final Map<String, Long> carsByCategory = new TreeMap<>();
+    // Цена в центах -> сколько машин с такой ценой; первый и последний ключ дают min и max
+    private final TreeMap<Long, Integer> priceCounts = new TreeMap<>();
+
+    // Последнее известное состояние машины, чтобы изменение превращалось в разницу счётчиков
+    private final Map<Integer, Car> knownCars = new HashMap<>();
+
+    public FleetStatistics(CarRepository carRepository) {
+        this.carRepository = carRepository;
+    }
+
+    public synchronized void rebuild() {
+        List<Car> catalog = carRepository.getAllCarsWithCategory();
+
+        totalCars = 0;
+        availableCars = 0;
+        priceCentsSum = 0;
+        carsByCategory.clear();
+        priceCounts.clear();
+        knownCars.clear();
+
+        for (Car car : catalog) {
+            apply(new Car(car), 1);
+        }
+    }
+
+    public synchronized FleetSnapshot getSnapshot() {
+        double averagePrice = totalCars == 0 ? 0 : priceCentsSum / 100.0 / totalCars;
+        double minPrice = priceCounts.isEmpty() ? 0 : priceCounts.firstKey() / 100.0;
+        double maxPrice = priceCounts.isEmpty() ? 0 : priceCounts.lastKey() / 100.0;
+        return new FleetSnapshot(totalCars, availableCars, averagePrice, minPrice, maxPrice,
+                new TreeMap<>(carsByCategory));
+    }
+
+    // Новая машина или изменённые цена, категория, доступность
+    @Override
+    public synchronized void carSaved(Car car) {
+        Car previous = knownCars.get(car.getId());
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        apply(new Car(car), 1);
+    }
+
+    @Override
+    public synchronized void carAvailabilityChanged(int carId, boolean isAvailable) {
+        Car previous = knownCars.get(carId);
+        if (previous == null || previous.isAvailable() == isAvailable) {
+            return;
+        }
+        availableCars += isAvailable ? 1 : -1;
+        Car updated = new Car(previous);
+        updated.setAvailable(isAvailable);
+        knownCars.put(carId, updated);
+    }
+
+    // sign = 1 добавляет машину в счётчики, -1 убирает
+    private void apply(Car car, int sign) {
+        long cents = Math.round(car.getDailyPrice() * 100);
+
+        totalCars += sign;
+        if (car.isAvailable()) {
+            availableCars += sign;
+        }
+        priceCentsSum += sign * cents;
+        priceCounts.merge(cents, sign, (a, b) -> a + b == 0 ? null : a + b);
+        if (car.getCategoryName() != null) {
+            carsByCategory.merge(car.getCategoryName(), (long) sign, (a, b) -> a + b == 0 ? null : a + b);
+        }
+
+        if (sign > 0) {
+            knownCars.put(car.getId(), car);
+        } else {
+            knownCars.remove(car.getId());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package services;
+
+public class ImportReport {
+    private final long rowsRead;
+    private final long inserted;
+    private final long rejected;
+    private final long duplicates;
+    private final long elapsedMillis;
+
+    ImportReport(long rowsRead, long inserted, long rejected, long duplicates, long elapsedMillis) {
+        this.rowsRead = rowsRead;
+        this.inserted = inserted;
+        this.rejected = rejected;
+        this.duplicates = duplicates;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getRowsRead() { return rowsRead; }
+
+    public long getInserted() { return inserted; }
+
+    // Включая дубликаты
+    public long getRejected() { return rejected; }
+
+    public long getDuplicates() { return duplicates; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? rowsRead : rowsRead * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Import[read=%d, inserted=%d, rejected=%d, duplicates=%d, time=%dms, rate=%.0f rows/s]",
+                rowsRead, inserted, rejected, duplicates, elapsedMillis, getRowsPerSecond());
+    }
+}
\ No newline at end of file
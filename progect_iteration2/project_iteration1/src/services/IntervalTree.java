@@ -0,0 +1,156 @@
+package services;
+
+// AVL-дерево интервалов [start, end] в днях (epoch day), ключ - (start, rentalId).
+// В каждом узле хранится максимальный end поддерева, поэтому поиск пересечения - O(log n)
+class IntervalTree {
+    private Node root;
+    private int size;
+
+    void insert(int rentalId, long start, long end) {
+        root = insert(root, rentalId, start, end);
+    }
+
+    void remove(int rentalId, long start) {
+        root = remove(root, rentalId, start);
+    }
+
+    boolean overlaps(long start, long end) {
+        Node node = root;
+        while (node != null) {
+            if (node.start <= end && node.end >= start) {
+                return true;
+            }
+            if (node.left != null && node.left.maxEnd >= start) {
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private Node insert(Node node, int rentalId, long start, long end) {
+        if (node == null) {
+            size++;
+            return new Node(rentalId, start, end);
+        }
+        int cmp = compare(start, rentalId, node);
+        if (cmp < 0) {
+            node.left = insert(node.left, rentalId, start, end);
+        } else if (cmp > 0) {
+            node.right = insert(node.right, rentalId, start, end);
+        } else {
+            node.end = end;
+        }
+        return balance(node);
+    }
+
+    private Node remove(Node node, int rentalId, long start) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, rentalId, node);
+        if (cmp < 0) {
+            node.left = remove(node.left, rentalId, start);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, rentalId, start);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            node.rentalId = successor.rentalId;
+            node.start = successor.start;
+            node.end = successor.end;
+            // Удаление преемника уменьшит size ещё раз
+            size++;
+            node.right = remove(node.right, successor.rentalId, successor.start);
+        }
+        return balance(node);
+    }
+
+    private static int compare(long start, int rentalId, Node node) {
+        int cmp = Long.compare(start, node.start);
+        return cmp != 0 ? cmp : Integer.compare(rentalId, node.rentalId);
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static class Node {
+        private int rentalId;
+        private long start;
+        private long end;
+        private long maxEnd;
+        private int height = 1;
+        private Node left;
+        private Node right;
+
+        Node(int rentalId, long start, long end) {
+            this.rentalId = rentalId;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+}
\ No newline at end of file
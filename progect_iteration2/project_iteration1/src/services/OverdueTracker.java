@@ -0,0 +1,161 @@
+package services;
+
+import entities.OverdueRental;
+import entities.Rental;
+import repositories.RentalChangeListener;
+import repositories.RentalRepository;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Просроченные аренды без сканирования истории: ACTIVE-аренды лежат в куче по end_date,
+// тик снимает с вершины только те, что просрочились с прошлого тика.
+// Удаление из кучи ленивое: запись считается живой, пока она же лежит в tracked
+public class OverdueTracker implements RentalChangeListener {
+    private static final Comparator<OverdueRental> BY_END_DATE =
+            Comparator.comparing(OverdueRental::getEndDate).thenComparingInt(OverdueRental::getId);
+
+    private final RentalRepository rentalRepository;
+
+    private final PriorityQueue<OverdueRental> byEndDate = new PriorityQueue<>(BY_END_DATE);
+    private final Map<Integer, OverdueRental> tracked = new HashMap<>();
+    private final Map<Integer, OverdueRental> overdue = new HashMap<>();
+    // Аренды, ставшие ACTIVE: уведомление несёт только id, полные данные подгружает тик
+    private final Set<Integer> pendingLoads = ConcurrentHashMap.newKeySet();
+
+    private volatile List<OverdueRental> overdueSnapshot = List.of();
+    private ScheduledExecutorService ticker;
+
+    public OverdueTracker(RentalRepository rentalRepository) {
+        this.rentalRepository = rentalRepository;
+    }
+
+    // Полная загрузка ACTIVE-аренд; при ошибке базы остаётся прежнее состояние
+    public void rebuild() {
+        List<OverdueRental> active = rentalRepository.getOverdueCandidates();
+        if (active == null) {
+            return;
+        }
+
+        synchronized (this) {
+            byEndDate.clear();
+            tracked.clear();
+            overdue.clear();
+            pendingLoads.clear();
+            for (OverdueRental rental : active) {
+                track(rental);
+            }
+        }
+        tick();
+    }
+
+    public synchronized void start(long periodMillis) {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "overdue-tracker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    public void tick() {
+        loadPending();
+
+        LocalDate today = LocalDate.now();
+        synchronized (this) {
+            boolean changed = false;
+            OverdueRental head;
+            while ((head = byEndDate.peek()) != null && head.getEndDate().isBefore(today)) {
+                byEndDate.poll();
+                if (tracked.remove(head.getId(), head)) {
+                    overdue.put(head.getId(), head);
+                    changed = true;
+                }
+            }
+            // Мёртвых записей стало больше живых - пересобираем кучу
+            if (byEndDate.size() > 2 * tracked.size() + 64) {
+                byEndDate.clear();
+                byEndDate.addAll(tracked.values());
+            }
+            if (changed) {
+                publish();
+            }
+        }
+    }
+
+    // Просроченные аренды на последний тик, по дате окончания
+    public List<OverdueRental> getOverdueRentals() {
+        return overdueSnapshot;
+    }
+
+    public synchronized int getTrackedCount() {
+        return tracked.size();
+    }
+
+    @Override
+    public void rentalCreated(Rental rental) {
+        if ("ACTIVE".equals(rental.getStatus())) {
+            pendingLoads.add(rental.getId());
+        }
+    }
+
+    @Override
+    public synchronized void rentalStatusChanged(int rentalId, int carId, int userId, String status) {
+        if ("ACTIVE".equals(status)) {
+            pendingLoads.add(rentalId);
+            return;
+        }
+        pendingLoads.remove(rentalId);
+        tracked.remove(rentalId);
+        if (overdue.remove(rentalId) != null) {
+            publish();
+        }
+    }
+
+    private void loadPending() {
+        for (Integer rentalId : new ArrayList<>(pendingLoads)) {
+            // null, если аренда уже не ACTIVE
+            OverdueRental rental = rentalRepository.getOverdueCandidate(rentalId);
+            synchronized (this) {
+                // Статус мог смениться, пока шёл запрос
+                if (!pendingLoads.remove(rentalId) || rental == null) {
+                    continue;
+                }
+                if (overdue.remove(rentalId) != null) {
+                    publish();
+                }
+                track(rental);
+            }
+        }
+    }
+
+    private void track(OverdueRental rental) {
+        tracked.put(rental.getId(), rental);
+        byEndDate.add(rental);
+    }
+
+    private void publish() {
+        List<OverdueRental> snapshot = new ArrayList<>(overdue.values());
+        snapshot.sort(BY_END_DATE);
+        overdueSnapshot = List.copyOf(snapshot);
+    }
+}
\ No newline at end of file
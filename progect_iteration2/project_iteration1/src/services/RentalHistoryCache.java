@@ -0,0 +1,135 @@
+package services;
+
+import entities.Rental;
+import entities.RentalSummary;
+import repositories.RentalChangeListener;
+import repositories.RentalRepository;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// История аренд по пользователю. Не больше maxUsers записей, вытесняется тот, к кому дольше
+// не обращались; запись без обращений дольше idleMillis считается устаревшей.
+// Уведомления приходят синхронно после коммита, поэтому следующее чтение уже видит изменение
+public class RentalHistoryCache implements RentalChangeListener {
+    private final RentalRepository rentalRepository;
+    private final int maxUsers;
+    private final long idleMillis;
+
+    // Порядок доступа: в голове самые давно не читанные; меняется только под this
+    private final LinkedHashMap<Integer, CachedHistory> histories = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Растёт при каждом изменении аренд: загрузка, начатая до него, не должна попасть в кэш
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public RentalHistoryCache(RentalRepository rentalRepository, int maxUsers, long idleMillis) {
+        if (maxUsers <= 0 || idleMillis <= 0) {
+            throw new IllegalArgumentException("Cache size and idle timeout must be positive");
+        }
+        this.rentalRepository = rentalRepository;
+        this.maxUsers = maxUsers;
+        this.idleMillis = idleMillis;
+    }
+
+    // Аренды пользователя от новых к старым; список неизменяемый
+    public List<RentalSummary> getRentalsByUser(int userId) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            CachedHistory cached = histories.get(userId);
+            if (cached != null) {
+                if (now - cached.lastAccess <= idleMillis) {
+                    cached.lastAccess = now;
+                    hits.increment();
+                    return cached.rentals;
+                }
+                histories.remove(userId);
+                evictions.increment();
+            }
+        }
+
+        misses.increment();
+        long loadVersion = version.get();
+        List<RentalSummary> rentals = List.copyOf(rentalRepository.getRentalSummariesByUser(userId));
+
+        // Пустой список может означать и ошибку базы - такой не кэшируем
+        if (!rentals.isEmpty()) {
+            synchronized (this) {
+                if (version.get() == loadVersion) {
+                    histories.put(userId, new CachedHistory(rentals, now));
+                    evictIdleAndOverflow(now);
+                }
+            }
+        }
+        return rentals;
+    }
+
+    public synchronized void invalidate(int userId) {
+        version.incrementAndGet();
+        if (histories.remove(userId) != null) {
+            invalidations.increment();
+        }
+    }
+
+    public synchronized CacheMetrics getMetrics() {
+        return new CacheMetrics(hits.sum(), misses.sum(), evictions.sum(), 0,
+                invalidations.sum(), histories.size(), maxUsers);
+    }
+
+    @Override
+    public void rentalCreated(Rental rental) {
+        // В уведомлении нет марки и номера машины - проще перечитать историю
+        invalidate(rental.getUserId());
+    }
+
+    @Override
+    public synchronized void rentalStatusChanged(int rentalId, int carId, int userId, String status) {
+        version.incrementAndGet();
+        CachedHistory cached = histories.get(userId);
+        if (cached == null) {
+            return;
+        }
+
+        // Статус не влияет на порядок, поэтому запись достаточно подменить одну аренду
+        List<RentalSummary> patched = new ArrayList<>(cached.rentals);
+        for (int i = 0; i < patched.size(); i++) {
+            if (patched.get(i).getId() == rentalId) {
+                patched.set(i, patched.get(i).withStatus(status));
+                cached.rentals = List.copyOf(patched);
+                return;
+            }
+        }
+        histories.remove(userId);
+        invalidations.increment();
+    }
+
+    private void evictIdleAndOverflow(long now) {
+        Iterator<Map.Entry<Integer, CachedHistory>> eldest = histories.entrySet().iterator();
+        while (eldest.hasNext()) {
+            CachedHistory cached = eldest.next().getValue();
+            if (histories.size() <= maxUsers && now - cached.lastAccess <= idleMillis) {
+                break;
+            }
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static class CachedHistory {
+        private List<RentalSummary> rentals;
+        private long lastAccess;
+
+        CachedHistory(List<RentalSummary> rentals, long lastAccess) {
+            this.rentals = rentals;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package services;
+
+import entities.Rental;
+import repositories.BookingResult;
+
+// Результат попытки оформить аренду; rental заполнен только при BOOKED
+public class RentalOutcome {
+    private final BookingResult result;
+    private final Rental rental;
+
+    RentalOutcome(BookingResult result, Rental rental) {
+        this.result = result;
+        this.rental = rental;
+    }
+
+    public BookingResult getResult() { return result; }
+
+    public Rental getRental() { return rental; }
+
+    public boolean isBooked() { return result == BookingResult.BOOKED; }
+}
\ No newline at end of file
@@ -0,0 +1,270 @@
+package services;
+
+import entities.Rental;
+import repositories.RentalChangeListener;
+import repositories.RentalRepository;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Триграммный индекс аренд по имени и email клиента, номеру машины и логину.
+// Совпадение по подстроке (значит, и по префиксу), как в RentalRepository.searchRentals.
+// Результат сразу упорядочен по дате начала от новых к старым и ограничен limit
+public class RentalSearchIndex implements RentalChangeListener {
+    private static final char FIELD_SEPARATOR = '\u0000';
+    private static final Comparator<IndexedRental> NEWEST_FIRST =
+            Comparator.comparing((IndexedRental indexed) -> indexed.rental.getStartDate()).reversed()
+                    .thenComparing(Comparator.comparingInt((IndexedRental indexed) -> indexed.rental.getId()).reversed());
+
+    // Как часто search() повторяет неудавшуюся загрузку
+    private static final long REBUILD_RETRY_MILLIS = 30_000;
+
+    private final RentalRepository rentalRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, IndexedRental> rentals = new HashMap<>();
+    private final NavigableSet<IndexedRental> newestFirst = new TreeSet<>(NEWEST_FIRST);
+    private final Map<Long, Set<Integer>> postings = new HashMap<>();
+
+    private volatile boolean loaded;
+    private volatile long lastRebuildAttempt;
+
+    public RentalSearchIndex(RentalRepository rentalRepository) {
+        this.rentalRepository = rentalRepository;
+    }
+
+    // При ошибке базы остаётся прежний индекс; false, если загрузить не удалось
+    public boolean rebuild() {
+        lastRebuildAttempt = System.currentTimeMillis();
+        List<Rental> history = rentalRepository.getAllRentalsWithDetails();
+        if (history == null) {
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            rentals.clear();
+            newestFirst.clear();
+            postings.clear();
+            for (Rental rental : history) {
+                add(rental);
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    // false, пока история ни разу не загрузилась: пустой результат тогда ничего не значит
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Не больше limit совпадений, от новых к старым
+    public List<Rental> search(String searchTerm, int limit) {
+        String query = normalize(searchTerm);
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        if (!loaded && System.currentTimeMillis() - lastRebuildAttempt >= REBUILD_RETRY_MILLIS) {
+            rebuild();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (query.length() < 3) {
+                return scanNewestFirst(query, null, limit);
+            }
+
+            Set<Integer> candidates = smallestPosting(query);
+            if (candidates == null) {
+                return new ArrayList<>();
+            }
+            // Кандидатов много - дешевле идти по порядку и остановиться на limit
+            if (candidates.size() > rentals.size() / 4) {
+                return scanNewestFirst(query, candidates, limit);
+            }
+            return topK(query, candidates, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rentals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void rentalCreated(Rental rental) {
+        // В уведомлении нет логина и номера машины - берём строку с деталями
+        Rental detailed = rentalRepository.getRentalWithDetails(rental.getId());
+        Rental indexed = detailed != null ? detailed : new Rental(rental);
+
+        lock.writeLock().lock();
+        try {
+            remove(indexed.getId());
+            add(indexed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void rentalStatusChanged(int rentalId, int carId, int userId, String status) {
+        lock.writeLock().lock();
+        try {
+            IndexedRental indexed = rentals.get(rentalId);
+            if (indexed != null) {
+                // Текстовые поля не менялись, триграммы пересчитывать не нужно
+                Rental updated = new Rental(indexed.rental);
+                updated.setStatus(status);
+                IndexedRental replacement = new IndexedRental(updated, indexed.text);
+                newestFirst.remove(indexed);
+                newestFirst.add(replacement);
+                rentals.put(rentalId, replacement);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Rental> scanNewestFirst(String query, Set<Integer> candidates, int limit) {
+        List<Rental> results = new ArrayList<>();
+        for (IndexedRental indexed : newestFirst) {
+            if ((candidates == null || candidates.contains(indexed.rental.getId()))
+                    && indexed.text.contains(query)) {
+                results.add(indexed.rental);
+                if (results.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    // Куча на limit элементов: на вершине самое старое совпадение, его и вытесняем
+    private List<Rental> topK(String query, Set<Integer> candidates, int limit) {
+        PriorityQueue<IndexedRental> best = new PriorityQueue<>(Math.min(limit, candidates.size()) + 1,
+                NEWEST_FIRST.reversed());
+        for (Integer rentalId : candidates) {
+            IndexedRental indexed = rentals.get(rentalId);
+            if (indexed == null || !indexed.text.contains(query)) {
+                continue;
+            }
+            best.offer(indexed);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Rental> results = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            results.add(best.poll().rental);
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    private void add(Rental rental) {
+        String text = indexText(rental);
+        IndexedRental indexed = new IndexedRental(rental, text);
+        rentals.put(rental.getId(), indexed);
+        newestFirst.add(indexed);
+
+        for (int i = 0; i + 2 < text.length(); i++) {
+            if (text.charAt(i) == FIELD_SEPARATOR || text.charAt(i + 1) == FIELD_SEPARATOR
+                    || text.charAt(i + 2) == FIELD_SEPARATOR) {
+                continue;
+            }
+            long key = trigram(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2));
+            postings.computeIfAbsent(key, k -> new HashSet<>()).add(rental.getId());
+        }
+    }
+
+    private void remove(int rentalId) {
+        IndexedRental indexed = rentals.remove(rentalId);
+        if (indexed == null) {
+            return;
+        }
+        newestFirst.remove(indexed);
+
+        String text = indexed.text;
+        for (int i = 0; i + 2 < text.length(); i++) {
+            long key = trigram(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2));
+            Set<Integer> ids = postings.get(key);
+            if (ids != null) {
+                ids.remove(rentalId);
+                if (ids.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    private Set<Integer> smallestPosting(String query) {
+        Set<Integer> smallest = null;
+        for (int i = 0; i + 2 < query.length(); i++) {
+            Set<Integer> ids = postings.get(trigram(query.charAt(i), query.charAt(i + 1), query.charAt(i + 2)));
+            if (ids == null) {
+                return null;
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        return smallest;
+    }
+
+    private static long trigram(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    private static String normalize(String value) {
+        StringBuilder normalized = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            normalized.append(Character.toLowerCase(value.charAt(i)));
+        }
+        return normalized.toString();
+    }
+
+    private static String indexText(Rental rental) {
+        StringBuilder text = new StringBuilder();
+        appendField(text, rental.getCustomerName());
+        appendField(text, rental.getCustomerEmail());
+        appendField(text, rental.getCarLicensePlate());
+        appendField(text, rental.getUsername());
+        return text.toString();
+    }
+
+    private static void appendField(StringBuilder text, String value) {
+        if (value == null) {
+            return;
+        }
+        text.append(normalize(value));
+        text.append(FIELD_SEPARATOR);
+    }
+
+    private static class IndexedRental {
+        private final Rental rental;
+        private final String text;
+
+        IndexedRental(Rental rental, String text) {
+            this.rental = rental;
+            this.text = text;
+        }
+    }
+}
\ No newline at end of file
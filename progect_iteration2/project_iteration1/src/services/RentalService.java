@@ -0,0 +1,120 @@
+package services;
+
+import entities.Car;
+import entities.Permission;
+import entities.Rental;
+import entities.User;
+import repositories.BookingResult;
+import repositories.BulkStatusUpdate;
+import repositories.CarRepository;
+import repositories.RentalRepository;
+import repositories.StatusUpdateOutcome;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+// Правила оформления и закрытия аренд без ввода-вывода; общие для консоли и HTTP API
+public class RentalService {
+    private final RentalRepository rentalRepository;
+    private final CarRepository carRepository;
+    private final CarCache carCache;
+    private final AvailabilityEngine availabilityEngine;
+
+    public RentalService(RentalRepository rentalRepository, CarRepository carRepository,
+                         CarCache carCache, AvailabilityEngine availabilityEngine) {
+        this.rentalRepository = rentalRepository;
+        this.carRepository = carRepository;
+        this.carCache = carCache;
+        this.availabilityEngine = availabilityEngine;
+    }
+
+    public static long countDays(LocalDate startDate, LocalDate endDate) {
+        return endDate.toEpochDay() - startDate.toEpochDay() + 1;
+    }
+
+    public static void validatePeriod(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || !endDate.isAfter(startDate)) {
+            throw new IllegalArgumentException("End date must be after start date");
+        }
+    }
+
+    public boolean isCarAvailable(int carId, LocalDate startDate, LocalDate endDate) {
+        validatePeriod(startDate, endDate);
+        return availabilityEngine.isCarAvailableForDates(carId, startDate, endDate);
+    }
+
+    // null, если машины нет
+    public Double estimateCost(int carId, int days) {
+        if (days <= 0) {
+            throw new IllegalArgumentException("Number of days must be positive");
+        }
+        Car car = carCache.getCarById(carId);
+        return car != null ? car.getDailyPrice() * days : null;
+    }
+
+    // Имя и email по умолчанию берутся из учётной записи
+    public RentalOutcome createRental(User user, int carId, LocalDate startDate, LocalDate endDate,
+                                      String customerName, String customerEmail) {
+        validatePeriod(startDate, endDate);
+
+        Car car = carCache.getCarById(carId);
+        if (car == null) {
+            return new RentalOutcome(BookingResult.CAR_NOT_FOUND, null);
+        }
+        if (!car.isAvailable()) {
+            return new RentalOutcome(BookingResult.CAR_UNAVAILABLE, null);
+        }
+        if (!availabilityEngine.isCarAvailableForDates(carId, startDate, endDate)) {
+            return new RentalOutcome(BookingResult.DATES_TAKEN, null);
+        }
+
+        if (customerName == null || customerName.isBlank()) {
+            customerName = user.getFullName() != null ? user.getFullName() : user.getUsername();
+        }
+        if (customerEmail == null || customerEmail.isBlank()) {
+            customerEmail = user.getEmail();
+        }
+
+        double totalPrice = car.getDailyPrice() * countDays(startDate, endDate);
+        Rental rental = new Rental(carId, user.getId(), customerName, customerEmail,
+                startDate, endDate, totalPrice);
+        BookingResult result = rentalRepository.bookCar(rental);
+        if (result == BookingResult.BOOKED) {
+            carRepository.publishAvailabilityChange(carId, false);
+            return new RentalOutcome(result, rental);
+        }
+        return new RentalOutcome(result, null);
+    }
+
+    public boolean completeRental(int rentalId) {
+        return succeeded(completeRentals(List.of(rentalId)), rentalId);
+    }
+
+    // Персонал может отменить любую аренду, клиент - только свою
+    public boolean cancelRental(User user, int rentalId) {
+        return succeeded(cancelRentals(user, List.of(rentalId)), rentalId);
+    }
+
+    public BulkStatusUpdate completeRentals(Collection<Integer> rentalIds) {
+        return publishFreedCars(rentalRepository.updateRentalStatuses(rentalIds, "COMPLETED"));
+    }
+
+    public BulkStatusUpdate cancelRentals(User user, Collection<Integer> rentalIds) {
+        if (user.hasPermission(Permission.MANAGE_RENTALS)) {
+            return publishFreedCars(rentalRepository.updateRentalStatuses(rentalIds, "CANCELLED"));
+        }
+        return publishFreedCars(rentalRepository.updateRentalStatusesForUser(rentalIds, user.getId(), "CANCELLED"));
+    }
+
+    private BulkStatusUpdate publishFreedCars(BulkStatusUpdate update) {
+        for (int carId : update.getFreedCarIds()) {
+            carRepository.publishAvailabilityChange(carId, true);
+        }
+        return update;
+    }
+
+    private static boolean succeeded(BulkStatusUpdate update, int rentalId) {
+        StatusUpdateOutcome outcome = update.getOutcome(rentalId);
+        return outcome == StatusUpdateOutcome.UPDATED || outcome == StatusUpdateOutcome.UNCHANGED;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package services;
+
+import entities.Rental;
+import entities.RentalStatistics;
+import repositories.RentalChangeListener;
+import repositories.RentalRepository;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Кэширует результат агрегатного запроса; любое изменение аренды сбрасывает кэш
+public class RentalStatisticsService implements RentalChangeListener {
+    private final RentalRepository rentalRepository;
+    private final long ttlMillis;
+
+    // Растёт при каждом изменении, чтобы не закэшировать результат, посчитанный до изменения
+    private final AtomicLong version = new AtomicLong();
+    private volatile CachedStatistics cached;
+
+    public RentalStatisticsService(RentalRepository rentalRepository, long ttlMillis) {
+        this.rentalRepository = rentalRepository;
+        this.ttlMillis = ttlMillis;
+    }
+
+    // null, если статистику не удалось посчитать
+    public RentalStatistics getStatistics() {
+        CachedStatistics current = cached;
+        long now = System.currentTimeMillis();
+        if (current != null && now - current.loadedAt < ttlMillis) {
+            return current.statistics;
+        }
+
+        long versionBeforeLoad = version.get();
+        RentalStatistics statistics = rentalRepository.getRentalStatistics();
+        if (statistics != null) {
+            // Проверка версии и запись под тем же замком, что и сброс: сброс между ними не потеряется
+            synchronized (this) {
+                if (version.get() == versionBeforeLoad) {
+                    cached = new CachedStatistics(statistics, now);
+                }
+            }
+        }
+        return statistics;
+    }
+
+    public synchronized void invalidate() {
+        version.incrementAndGet();
+        cached = null;
+    }
+
+    @Override
+    public void rentalCreated(Rental rental) {
+        invalidate();
+    }
+
+    @Override
+    public void rentalStatusChanged(int rentalId, int carId, int userId, String status) {
+        invalidate();
+    }
+
+    private static class CachedStatistics {
+        private final RentalStatistics statistics;
+        private final long loadedAt;
+
+        CachedStatistics(RentalStatistics statistics, long loadedAt) {
+            this.statistics = statistics;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
\ No newline at end of file
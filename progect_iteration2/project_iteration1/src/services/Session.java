@@ -0,0 +1,57 @@
+package services;
+
+import entities.Permission;
+import entities.Role;
+import entities.User;
+
+// Сессия пользователя: непрозрачный токен и пользователь, загруженный один раз при входе
+public class Session {
+    private final String token;
+    private final User user;
+    private final long permissions;
+    private final long createdAt;
+    private volatile long lastAccessedAt;
+
+    Session(String token, User user, long now) {
+        this.token = token;
+        this.user = user;
+        this.permissions = user.getRoleType() != null ? user.getRoleType().permissions() : 0;
+        this.createdAt = now;
+        this.lastAccessedAt = now;
+    }
+
+    public String getToken() { return token; }
+
+    // Копия, чтобы вызывающий код не менял закэшированного пользователя
+    public User getUser() { return new User(user); }
+
+    public int getUserId() { return user.getId(); }
+
+    public long getCreatedAt() { return createdAt; }
+
+    public long getLastAccessedAt() { return lastAccessedAt; }
+
+    boolean hasPermission(String requiredRole) {
+        return user.hasPermission(requiredRole);
+    }
+
+    boolean hasRole(Role required) {
+        return user.getRoleType() != null && user.getRoleType().isAtLeast(required);
+    }
+
+    boolean can(Permission permission) {
+        return (permissions & permission.mask()) != 0;
+    }
+
+    boolean isAdmin() {
+        return user.isAdmin();
+    }
+
+    boolean isExpired(long now, long idleTimeoutMillis) {
+        return now - lastAccessedAt >= idleTimeoutMillis;
+    }
+
+    void touch(long now) {
+        lastAccessedAt = now;
+    }
+}
\ No newline at end of file
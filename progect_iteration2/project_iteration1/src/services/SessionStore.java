@@ -0,0 +1,97 @@
+package services;
+
+import entities.User;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Хранилище сессий. Срок жизни скользящий: каждое обращение продлевает сессию на idleTimeout,
+// просроченные сессии удаляет фоновый поток
+public class SessionStore {
+    private static final int TOKEN_BYTES = 32;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long idleTimeoutMillis;
+    private final ScheduledExecutorService reaper;
+
+    public SessionStore(long idleTimeoutMillis, long reapPeriodMillis) {
+        if (idleTimeoutMillis <= 0 || reapPeriodMillis <= 0) {
+            throw new IllegalArgumentException("Session timeouts must be positive");
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reaper.scheduleWithFixedDelay(this::removeExpired, reapPeriodMillis, reapPeriodMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public Session create(User user) {
+        User cached = new User(user);
+        // Пароль в памяти сессии не нужен
+        cached.setPassword(null);
+
+        long now = System.currentTimeMillis();
+        while (true) {
+            Session session = new Session(newToken(), cached, now);
+            if (sessions.putIfAbsent(session.getToken(), session) == null) {
+                return session;
+            }
+        }
+    }
+
+    // Живая сессия с продлённым сроком или null, если токена нет или он истёк
+    public Session get(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (session.isExpired(now, idleTimeoutMillis)) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.touch(now);
+        return session;
+    }
+
+    public void invalidate(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    // Например, после смены роли или удаления пользователя
+    public void invalidateUser(int userId) {
+        sessions.values().removeIf(session -> session.getUserId() == userId);
+    }
+
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    public void shutdown() {
+        reaper.shutdownNow();
+        sessions.clear();
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> session.isExpired(now, idleTimeoutMillis));
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
\ No newline at end of file
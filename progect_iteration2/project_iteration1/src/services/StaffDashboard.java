@@ -0,0 +1,84 @@
+package services;
+
+import entities.OverdueRental;
+import entities.Rental;
+import entities.RentalStatistics;
+import repositories.AsyncCarRepository;
+import repositories.AsyncRentalRepository;
+import repositories.AsyncUserRepository;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Сводка для персонала: независимые запросы идут параллельно, общее время - как у самого медленного
+public class StaffDashboard {
+    private final AsyncRentalRepository rentalRepository;
+    private final AsyncCarRepository carRepository;
+    private final AsyncUserRepository userRepository;
+    private final OverdueTracker overdueTracker;
+
+    public StaffDashboard(AsyncRentalRepository rentalRepository, AsyncCarRepository carRepository,
+                          AsyncUserRepository userRepository, OverdueTracker overdueTracker) {
+        this.rentalRepository = rentalRepository;
+        this.carRepository = carRepository;
+        this.userRepository = userRepository;
+        this.overdueTracker = overdueTracker;
+    }
+
+    public CompletableFuture<Snapshot> load() {
+        long startedAt = System.nanoTime();
+
+        CompletableFuture<List<Rental>> active = rentalRepository.getActiveRentals();
+        CompletableFuture<List<OverdueRental>> overdue = CompletableFuture.completedFuture(overdueTracker.getOverdueRentals());
+        CompletableFuture<RentalStatistics> statistics = rentalRepository.getRentalStatistics();
+        CompletableFuture<Integer> availableCars = carRepository.countAvailableCars();
+        CompletableFuture<Integer> customers = userRepository.countUsersByRole("CUSTOMER");
+        CompletableFuture<List<Rental>> rejected = rentalRepository.getJournalRejectedRentals();
+
+        return CompletableFuture.allOf(active, overdue, statistics, availableCars, customers, rejected)
+                .thenApply(ignored -> new Snapshot(
+                        active.join(),
+                        overdue.join(),
+                        statistics.join(),
+                        availableCars.join(),
+                        customers.join(),
+                        rejected.join(),
+                        (System.nanoTime() - startedAt) / 1_000_000));
+    }
+
+    public static class Snapshot {
+        private final List<Rental> activeRentals;
+        private final List<OverdueRental> overdueRentals;
+        private final RentalStatistics statistics;
+        private final int availableCars;
+        private final int customers;
+        private final List<Rental> rejectedRentals;
+        private final long loadMillis;
+
+        Snapshot(List<Rental> activeRentals, List<OverdueRental> overdueRentals, RentalStatistics statistics,
+                 int availableCars, int customers, List<Rental> rejectedRentals, long loadMillis) {
+            this.activeRentals = activeRentals;
+            this.overdueRentals = overdueRentals;
+            this.statistics = statistics;
+            this.availableCars = availableCars;
+            this.customers = customers;
+            this.rejectedRentals = rejectedRentals;
+            this.loadMillis = loadMillis;
+        }
+
+        public List<Rental> getActiveRentals() { return activeRentals; }
+
+        public List<OverdueRental> getOverdueRentals() { return overdueRentals; }
+
+        // null, если статистику не удалось посчитать
+        public RentalStatistics getStatistics() { return statistics; }
+
+        public int getAvailableCars() { return availableCars; }
+
+        public int getCustomers() { return customers; }
+
+        // Брони режима журнала, отвергнутые при переносе в базу; без журнала - пусто
+        public List<Rental> getRejectedRentals() { return rejectedRentals; }
+
+        public long getLoadMillis() { return loadMillis; }
+    }
+}
\ No newline at end of file
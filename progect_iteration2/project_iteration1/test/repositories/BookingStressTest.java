@@ -0,0 +1,196 @@
+package repositories;
+
+import database.DatabaseConnection;
+import entities.Rental;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Нагрузочный тест bookCar: много потоков бронируют несколько машин на пересекающиеся даты.
+// После прогона у каждой машины не должно быть пересекающихся аренд PENDING/ACTIVE.
+// Нужна база из DatabaseConnection; тест создаёт свои машины и удаляет их вместе с арендами.
+// Аргументы: потоки, попыток на поток, машин (по умолчанию 8, 200, 3)
+public class BookingStressTest {
+    private static final String PLATE_PREFIX = "BST-";
+    private static final int DATE_WINDOW_DAYS = 30;
+    private static final int MAX_RENTAL_DAYS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int attemptsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int carCount = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        Connection probe = DatabaseConnection.getInstance().getConnection();
+        if (probe == null) {
+            throw new IllegalStateException("BookingStressTest needs the carsharing database");
+        }
+        probe.close();
+
+        RentalRepository repository = new RentalRepository();
+        List<Integer> carIds = new ArrayList<>();
+        try {
+            int userId = insertFixture(carIds, carCount);
+            Map<BookingResult, Integer> results = run(repository, carIds, userId, threads, attemptsPerThread);
+            System.out.println("Booking results: " + results);
+
+            int booked = results.getOrDefault(BookingResult.BOOKED, 0);
+            int failed = results.getOrDefault(BookingResult.FAILED, 0);
+            int stored = countRentals(carIds);
+            int overlaps = countOverlaps(carIds);
+
+            check(overlaps == 0, "no overlapping PENDING/ACTIVE rentals per car, found " + overlaps);
+            check(stored == booked, "every BOOKED result has exactly one rental row: " + stored + " vs " + booked);
+            check(booked > carIds.size(), "the run exercised the date-overlap check, booked " + booked);
+            check(failed == 0, "no booking failed after retries, failed " + failed);
+            System.out.println("BookingStressTest passed: " + booked + " bookings, no double bookings");
+        } finally {
+            deleteFixture(carIds);
+            DatabaseConnection.getInstance().closeConnection();
+        }
+    }
+
+    private static Map<BookingResult, Integer> run(RentalRepository repository, List<Integer> carIds, int userId,
+                                                   int threads, int attemptsPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+
+        List<Future<Map<BookingResult, Integer>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                Map<BookingResult, Integer> counts = new EnumMap<>(BookingResult.class);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                start.await();
+
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    int carId = carIds.get(random.nextInt(carIds.size()));
+                    // bookCar снимает is_available - возвращаем машину, чтобы брони упирались в проверку дат
+                    makeAvailable(carId);
+
+                    LocalDate startDate = firstDay.plusDays(random.nextInt(DATE_WINDOW_DAYS));
+                    LocalDate endDate = startDate.plusDays(1 + random.nextInt(MAX_RENTAL_DAYS));
+                    Rental rental = new Rental(carId, userId, "Stress Test", "stress@test.local",
+                            startDate, endDate, 10.0);
+                    counts.merge(repository.bookCar(rental), 1, Integer::sum);
+                }
+                return counts;
+            }));
+        }
+
+        start.countDown();
+        Map<BookingResult, Integer> total = new EnumMap<>(BookingResult.class);
+        for (Future<Map<BookingResult, Integer>> future : futures) {
+            future.get().forEach((result, count) -> total.merge(result, count, Integer::sum));
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        return total;
+    }
+
+    private static void makeAvailable(int carId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE cars SET is_available = true WHERE id = ?")) {
+            pstmt.setInt(1, carId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Пары аренд одной машины, у которых пересекаются дни (границы включительно, как в bookCar)
+    private static int countOverlaps(List<Integer> carIds) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM rentals a JOIN rentals b " +
+                "ON a.car_id = b.car_id AND a.id < b.id " +
+                "AND a.start_date <= b.end_date AND b.start_date <= a.end_date " +
+                "WHERE a.car_id = ANY (?) " +
+                "AND a.status IN ('PENDING', 'ACTIVE') AND b.status IN ('PENDING', 'ACTIVE')";
+        return countForCars(sql, carIds);
+    }
+
+    private static int countRentals(List<Integer> carIds) throws SQLException {
+        return countForCars("SELECT COUNT(*) FROM rentals WHERE car_id = ANY (?)", carIds);
+    }
+
+    private static int countForCars(String sql, List<Integer> carIds) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setArray(1, conn.createArrayOf("integer", carIds.toArray()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    // Создаёт машины теста; возвращает id существующего пользователя, от имени которого идут брони
+    private static int insertFixture(List<Integer> carIds, int carCount) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            int userId;
+            int categoryId;
+            try (Statement stmt = conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("SELECT id FROM users ORDER BY id LIMIT 1")) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("BookingStressTest needs at least one user");
+                    }
+                    userId = rs.getInt(1);
+                }
+                try (ResultSet rs = stmt.executeQuery("SELECT id FROM categories ORDER BY id LIMIT 1")) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("BookingStressTest needs at least one category");
+                    }
+                    categoryId = rs.getInt(1);
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO cars (brand, model, license_plate, year, category_id, daily_price, is_available) " +
+                            "VALUES ('Stress', 'Test', ?, 2020, ?, 10.0, true)", Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < carCount; i++) {
+                    pstmt.setString(1, PLATE_PREFIX + i + "-" + System.nanoTime() % 100000);
+                    pstmt.setInt(2, categoryId);
+                    pstmt.executeUpdate();
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            carIds.add(keys.getInt(1));
+                        }
+                    }
+                }
+            }
+            return userId;
+        }
+    }
+
+    private static void deleteFixture(List<Integer> carIds) throws SQLException {
+        if (carIds.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            Object[] ids = carIds.toArray();
+            try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM rentals WHERE car_id = ANY (?)")) {
+                pstmt.setArray(1, conn.createArrayOf("integer", ids));
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM cars WHERE id = ANY (?)")) {
+                pstmt.setArray(1, conn.createArrayOf("integer", ids));
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new AssertionError("Failed: " + description);
+        }
+    }
+}
\ No newline at end of file
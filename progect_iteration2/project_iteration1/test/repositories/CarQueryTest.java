@@ -0,0 +1,195 @@
+package repositories;
+
+import database.DatabaseConnection;
+import entities.Car;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Регрессия CarQuery: фильтры в SQL должны давать то же, что старые фильтры по потоку
+// поверх getAllCarsWithCategory(). Проверки текста запроса идут без базы,
+// сравнение результатов - только если база доступна (иначе пропускается)
+public class CarQueryTest {
+    private static final String PLATE_PREFIX = "CQT-";
+
+    private static int passed;
+
+    public static void main(String[] args) throws SQLException {
+        escapesLikeWildcards();
+        priceRangeIsInclusive();
+        priceOrderingBreaksTiesByBrandAndModel();
+
+        Connection probe = DatabaseConnection.getInstance().getConnection();
+        if (probe == null) {
+            System.out.println("Database is not available, skipping SQL/stream comparison");
+        } else {
+            probe.close();
+            compareWithStreamFilters();
+        }
+        DatabaseConnection.getInstance().closeConnection();
+        System.out.println("CarQueryTest: " + passed + " checks passed");
+    }
+
+    private static void escapesLikeWildcards() {
+        check("50\\%\\_off\\\\".equals(CarQuery.escapeLike("50%_off\\")), "escapeLike escapes %, _ and \\");
+
+        CarQuery query = CarQuery.cars().matching("A%b_C");
+        check(query.getParameters().equals(List.of("%a\\%b\\_c%", "%a\\%b\\_c%", "%a\\%b\\_c%", "%a\\%b\\_c%")),
+                "search term is lower-cased, escaped and wrapped in % for all four columns");
+        check(query.toSql().split("ESCAPE '\\\\'", -1).length == 5, "every LIKE declares the escape character");
+    }
+
+    private static void priceRangeIsInclusive() {
+        CarQuery query = CarQuery.cars().priceBetween(50.0, 80.0);
+        check(query.toSql().contains("c.daily_price BETWEEN ? AND ?"), "price range uses inclusive BETWEEN");
+        check(query.getParameters().equals(List.of(50.0, 80.0)), "price bounds are passed as min, max");
+    }
+
+    private static void priceOrderingBreaksTiesByBrandAndModel() {
+        String sql = CarQuery.cars().categoryName("SUV").orderByPrice().toSql();
+        check(sql.endsWith(" ORDER BY c.daily_price, c.brand, c.model"),
+                "price ordering falls back to brand, model like the stable stream sort");
+    }
+
+    private static void compareWithStreamFilters() throws SQLException {
+        CarRepository repository = new CarRepository();
+        List<Integer> fixture = new ArrayList<>();
+        try {
+            String category = insertFixture(fixture);
+            if (category == null) {
+                System.out.println("No categories in the database, skipping SQL/stream comparison");
+                return;
+            }
+
+            List<Car> all = repository.getAllCarsWithCategory();
+
+            for (String term : List.of("cqt", "%", "_", "\\", "50%", "a_b", "CQT-2", category.toUpperCase(), "")) {
+                String lower = term.toLowerCase();
+                assertSameCars(repository.searchCars(term), byPrice(all, car ->
+                        car.getBrand().toLowerCase().contains(lower)
+                                || car.getModel().toLowerCase().contains(lower)
+                                || car.getLicensePlate().toLowerCase().contains(lower)
+                                || (car.getCategoryName() != null
+                                && car.getCategoryName().toLowerCase().contains(lower))),
+                        "searchCars(\"" + term + "\")");
+            }
+
+            for (String name : List.of(category, category.toUpperCase(), category.toLowerCase(), "no such category")) {
+                assertSameCars(repository.getCarsByCategory(name), byPrice(all, car ->
+                        car.getCategoryName() != null && car.getCategoryName().equalsIgnoreCase(name)),
+                        "getCarsByCategory(\"" + name + "\")");
+            }
+
+            // Границы совпадают с ценами фикстуры - машины на границе должны попасть в результат
+            double[][] ranges = {{49.5, 49.5}, {49.5, 80.25}, {49.49, 49.51}, {80.25, 1000.0}, {0.0, 49.49}};
+            for (double[] range : ranges) {
+                assertSameCars(repository.getCarsByPriceRange(range[0], range[1]), byPrice(all, car ->
+                        car.getDailyPrice() >= range[0] && car.getDailyPrice() <= range[1]),
+                        "getCarsByPriceRange(" + range[0] + ", " + range[1] + ")");
+            }
+        } finally {
+            deleteFixture(fixture);
+        }
+    }
+
+    // Старая реализация: фильтр по списку, отсортированному по марке и модели, и стабильная сортировка по цене
+    private static List<Car> byPrice(List<Car> all, Predicate<Car> filter) {
+        return all.stream()
+                .filter(filter)
+                .sorted(Comparator.comparing(Car::getDailyPrice))
+                .toList();
+    }
+
+    // Машины с одинаковыми ценой, маркой и моделью база может отдать в любом порядке,
+    // поэтому сравниваются последовательность ключей сортировки и набор id
+    private static void assertSameCars(List<Car> actual, List<Car> expected, String what) {
+        check(sortKeys(actual).equals(sortKeys(expected)), what + ": order by price, brand, model matches");
+        check(new HashSet<>(ids(actual)).equals(new HashSet<>(ids(expected))), what + ": same cars");
+    }
+
+    private static List<String> sortKeys(List<Car> cars) {
+        List<String> keys = new ArrayList<>();
+        for (Car car : cars) {
+            keys.add(car.getDailyPrice() + "|" + car.getBrand() + "|" + car.getModel());
+        }
+        return keys;
+    }
+
+    private static List<Integer> ids(List<Car> cars) {
+        List<Integer> ids = new ArrayList<>();
+        for (Car car : cars) {
+            ids.add(car.getId());
+        }
+        return ids;
+    }
+
+    // Машины с символами LIKE в названиях и одинаковыми ценами у разных марок; возвращает имя категории
+    private static String insertFixture(List<Integer> ids) throws SQLException {
+        Object[][] cars = {
+                {"CQT Zeta", "50% Off", 49.5},
+                {"CQT Alpha", "a_b", 49.5},
+                {"CQT Alpha", "aXb", 49.5},
+                {"CQT Back\\slash", "Model", 80.25},
+                {"CQT Beta", "Plain", 80.25},
+        };
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            int categoryId;
+            String categoryName;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT id, name FROM categories ORDER BY id LIMIT 1")) {
+                if (!rs.next()) {
+                    return null;
+                }
+                categoryId = rs.getInt("id");
+                categoryName = rs.getString("name");
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO cars (brand, model, license_plate, year, category_id, daily_price, is_available) " +
+                            "VALUES (?, ?, ?, 2020, ?, ?, true)", Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < cars.length; i++) {
+                    pstmt.setString(1, (String) cars[i][0]);
+                    pstmt.setString(2, (String) cars[i][1]);
+                    pstmt.setString(3, PLATE_PREFIX + i + "-" + System.nanoTime() % 100000);
+                    pstmt.setInt(4, categoryId);
+                    pstmt.setDouble(5, (Double) cars[i][2]);
+                    pstmt.executeUpdate();
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            ids.add(keys.getInt(1));
+                        }
+                    }
+                }
+            }
+            return categoryName;
+        }
+    }
+
+    private static void deleteFixture(List<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM cars WHERE id = ?")) {
+            for (int id : ids) {
+                pstmt.setInt(1, id);
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new AssertionError("Failed: " + description);
+        }
+        passed++;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,205 @@
+package repositories;
+
+import entities.Car;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Маппинг миллиона строк машин без базы: ResultSet - заглушка, отдающая одну и ту же строку.
+// Сравнивает чтение по меткам (как mapResultSetToCar до EntityMapper), CAR_MAPPER с bind один раз
+// на результат и CAR_MAPPER.map без bind. Заглушка - обычный класс (CarRows), метки ищет как pgjdbc.
+// Аргументы: строк за прогон, прогонов (по умолчанию 1 000 000 и 5)
+public class EntityMapperBenchmark {
+    private static final String[] LABELS = {"id", "brand", "model", "license_plate", "year",
+            "category_id", "daily_price", "is_available", "category_name"};
+
+    // Чтобы JIT не выбросил маппинг как неиспользуемый
+    private static long sink;
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        RowMapper<Car> byLabel = EntityMapperBenchmark::mapByLabel;
+        RowMapper<Car> unbound = CarRepository.CAR_MAPPER::map;
+
+        // Прогрев JIT всеми вариантами
+        for (int i = 0; i < 3; i++) {
+            run(byLabel, rows / 10, false);
+            run(CarRepository.CAR_MAPPER, rows / 10, true);
+            run(unbound, rows / 10, false);
+        }
+
+        for (int round = 1; round <= rounds; round++) {
+            System.out.printf("round %d: by label %6.1f ns/row, bound index %6.1f ns/row, unbound %6.1f ns/row%n",
+                    round,
+                    run(byLabel, rows, false),
+                    run(CarRepository.CAR_MAPPER, rows, true),
+                    run(unbound, rows, false));
+        }
+        System.out.println("checksum " + sink);
+    }
+
+    // Возвращает наносекунды на строку
+    private static double run(RowMapper<Car> mapper, int rows, boolean bind) throws SQLException {
+        ResultSet rs = stubResultSet(rows);
+        long started = System.nanoTime();
+        RowMapper<Car> rowMapper = bind ? mapper.bind(rs) : mapper;
+        long checksum = 0;
+        while (rs.next()) {
+            Car car = rowMapper.map(rs);
+            checksum += car.getId() + car.getYear() + car.getBrand().length();
+        }
+        long elapsed = System.nanoTime() - started;
+        sink += checksum;
+        return (double) elapsed / rows;
+    }
+
+    private static Car mapByLabel(ResultSet rs) throws SQLException {
+        Car car = new Car();
+        car.setId(rs.getInt("id"));
+        car.setBrand(rs.getString("brand"));
+        car.setModel(rs.getString("model"));
+        car.setLicensePlate(rs.getString("license_plate"));
+        car.setYear(rs.getInt("year"));
+        car.setCategoryId(rs.getInt("category_id"));
+        car.setDailyPrice(rs.getDouble("daily_price"));
+        car.setAvailable(rs.getBoolean("is_available"));
+
+        if (rs.getString("category_name") != null) {
+            car.setCategoryName(rs.getString("category_name"));
+        }
+        return car;
+    }
+
+    private static ResultSet stubResultSet(int rows) {
+        return new CarRows(rows);
+    }
+
+    // Одна и та же строка машины rows раз. Геттеры - обычные методы без упаковки значений,
+    // метки ищутся как в pgjdbc: карта меток, при промахе - метка в нижнем регистре
+    private static final class CarRows extends UnsupportedResultSet {
+        private static final Map<String, Integer> INDEXES = new HashMap<>();
+
+        static {
+            for (int i = 0; i < LABELS.length; i++) {
+                INDEXES.put(LABELS[i], i + 1);
+            }
+        }
+
+        private final int rows;
+        private int row;
+
+        CarRows(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean next() {
+            return ++row <= rows;
+        }
+
+        @Override
+        public ResultSetMetaData getMetaData() {
+            return new CarRowsMetaData();
+        }
+
+        @Override
+        public int findColumn(String columnLabel) throws SQLException {
+            Integer index = INDEXES.get(columnLabel);
+            if (index == null) {
+                index = INDEXES.get(columnLabel.toLowerCase(Locale.ROOT));
+            }
+            if (index == null) {
+                throw new SQLException("Column not found: " + columnLabel);
+            }
+            return index;
+        }
+
+        @Override
+        public int getInt(int column) throws SQLException {
+            switch (column) {
+                case 1:
+                    return 42;
+                case 5:
+                    return 2021;
+                case 6:
+                    return 3;
+                default:
+                    throw new SQLException("Not an int column: " + column);
+            }
+        }
+
+        @Override
+        public String getString(int column) throws SQLException {
+            switch (column) {
+                case 2:
+                    return "Toyota";
+                case 3:
+                    return "Camry";
+                case 4:
+                    return "A123BC";
+                case 9:
+                    return "Sedan";
+                default:
+                    throw new SQLException("Not a string column: " + column);
+            }
+        }
+
+        @Override
+        public double getDouble(int column) throws SQLException {
+            if (column != 7) {
+                throw new SQLException("Not a double column: " + column);
+            }
+            return 59.9;
+        }
+
+        @Override
+        public boolean getBoolean(int column) throws SQLException {
+            if (column != 8) {
+                throw new SQLException("Not a boolean column: " + column);
+            }
+            return true;
+        }
+
+        @Override
+        public int getInt(String columnLabel) throws SQLException {
+            return getInt(findColumn(columnLabel));
+        }
+
+        @Override
+        public String getString(String columnLabel) throws SQLException {
+            return getString(findColumn(columnLabel));
+        }
+
+        @Override
+        public double getDouble(String columnLabel) throws SQLException {
+            return getDouble(findColumn(columnLabel));
+        }
+
+        @Override
+        public boolean getBoolean(String columnLabel) throws SQLException {
+            return getBoolean(findColumn(columnLabel));
+        }
+    }
+
+    private static final class CarRowsMetaData extends UnsupportedResultSetMetaData {
+        @Override
+        public int getColumnCount() {
+            return LABELS.length;
+        }
+
+        @Override
+        public String getColumnLabel(int column) {
+            return LABELS[column - 1];
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return LABELS[column - 1];
+        }
+    }
+}
\ No newline at end of file
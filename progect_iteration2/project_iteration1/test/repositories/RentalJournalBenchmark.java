@@ -0,0 +1,306 @@
+package repositories;
+
+import database.DatabaseConnection;
+import entities.Rental;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Пропускная способность write-behind журнала против синхронного пути.
+// Без базы меряется только приём записи в журнал (appendCreate/appendStatus), перенос заменяет
+// поток, сразу отмечающий записи применёнными. С базой из DatabaseConnection сравниваются bookCar
+// и массовая смена статусов: синхронно и через журнал, плюс время, за которое писатель догнал журнал.
+// Тест создаёт свои машины и удаляет их вместе с арендами; отметка журнала - своя, не "rentals".
+// Аргументы: потоки, операций (по умолчанию 8 и 2000)
+public class RentalJournalBenchmark {
+    private static final String JOURNAL_NAME = "rental-journal-benchmark";
+    private static final String PLATE_PREFIX = "RJB-";
+    private static final int JOURNAL_BYTES = 16 << 20;
+    private static final int WRITER_BATCH = 256;
+    private static final long WRITER_FLUSH_MS = 50;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        benchmarkAppends(threads, operations * 50);
+
+        Connection probe = DatabaseConnection.getInstance().getConnection();
+        if (probe == null) {
+            System.out.println("No database - skipping the bookCar and status update comparison");
+            return;
+        }
+        probe.close();
+
+        List<Integer> carIds = new ArrayList<>();
+        try {
+            int userId = insertFixture(carIds, operations * 2);
+            List<Integer> syncCars = carIds.subList(0, operations);
+            List<Integer> journalCars = carIds.subList(operations, operations * 2);
+
+            RentalRepository syncRepository = new RentalRepository();
+            report("sync    bookCar", book(syncRepository, syncCars, userId, threads), operations);
+            report("sync    complete", complete(syncRepository, syncCars, threads), operations);
+
+            Path file = Files.createTempFile("rental-journal-benchmark", ".bin");
+            try (RentalJournal journal = RentalJournal.open(file, JOURNAL_BYTES)) {
+                RentalRepository journalRepository = new RentalRepository();
+                journal.recover(journalRepository.getJournalCheckpoint(JOURNAL_NAME));
+                journalRepository.setJournal(journal);
+                Thread writer = startWriter(journal, journalRepository);
+
+                long started = System.nanoTime();
+                report("journal bookCar", book(journalRepository, journalCars, userId, threads), operations);
+                awaitDrained(journal);
+                report("journal bookCar, until in DB", System.nanoTime() - started, operations);
+
+                started = System.nanoTime();
+                report("journal complete", complete(journalRepository, journalCars, threads), operations);
+                awaitDrained(journal);
+                report("journal complete, until in DB", System.nanoTime() - started, operations);
+
+                writer.interrupt();
+                writer.join();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } finally {
+            deleteFixture(carIds);
+            DatabaseConnection.getInstance().closeConnection();
+        }
+    }
+
+    // Приём в журнал без базы: потоки дописывают, отдельный поток освобождает место
+    private static void benchmarkAppends(int threads, int operations) throws Exception {
+        Path file = Files.createTempFile("rental-journal-benchmark", ".bin");
+        try (RentalJournal journal = RentalJournal.open(file, JOURNAL_BYTES)) {
+            journal.recover(0);
+            Thread drainer = new Thread(() -> {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        if (journal.awaitBatch(WRITER_BATCH, 1)) {
+                            List<RentalJournal.Entry> batch = journal.readPending(WRITER_BATCH);
+                            if (!batch.isEmpty()) {
+                                journal.markApplied(batch.get(batch.size() - 1));
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // прогон закончен
+                }
+            }, "rental-journal-drainer");
+            drainer.start();
+
+            LocalDate day = LocalDate.now().plusDays(1);
+            Rental rental = new Rental(1, 1, "Journal Benchmark", "journal@test.local", day, day.plusDays(2), 30.0);
+
+            // Прогрев JIT
+            runParallel(threads, operations / 10, i -> journal.appendCreate(rental, 5_000));
+
+            report("journal appendCreate", runParallel(threads, operations,
+                    i -> journal.appendCreate(rental, 5_000)), operations);
+            report("journal appendStatus", runParallel(threads, operations,
+                    i -> journal.appendStatus(i, "COMPLETED", 5_000)), operations);
+
+            drainer.interrupt();
+            drainer.join();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long book(RentalRepository repository, List<Integer> cars, int userId, int threads)
+            throws Exception {
+        LocalDate startDate = LocalDate.now().plusDays(1);
+        Map<BookingResult, Integer> results = new EnumMap<>(BookingResult.class);
+        long elapsed = runParallel(threads, cars.size(), i -> {
+            Rental rental = new Rental(cars.get(i), userId, "Journal Benchmark", "journal@test.local",
+                    startDate, startDate.plusDays(2), 30.0);
+            BookingResult result = repository.bookCar(rental);
+            synchronized (results) {
+                results.merge(result, 1, Integer::sum);
+            }
+            return 0;
+        });
+        check(results.getOrDefault(BookingResult.BOOKED, 0) == cars.size(), "every car booked: " + results);
+        return elapsed;
+    }
+
+    // Каждая операция - bulk-вызов на одну аренду, как completeRental
+    private static long complete(RentalRepository repository, List<Integer> cars, int threads) throws Exception {
+        List<Integer> rentalIds = rentalIdsFor(cars);
+        check(rentalIds.size() == cars.size(), "one rental per car, found " + rentalIds.size());
+        return runParallel(threads, rentalIds.size(), i -> {
+            BulkStatusUpdate update = repository.updateRentalStatuses(List.of(rentalIds.get(i)), "COMPLETED");
+            check(update.getOutcome(rentalIds.get(i)) == StatusUpdateOutcome.UPDATED,
+                    "rental " + rentalIds.get(i) + " completed");
+            return 0;
+        });
+    }
+
+    // Тот же цикл, что у RentalJournalWriter, но со своей отметкой в rental_journal
+    private static Thread startWriter(RentalJournal journal, RentalRepository repository) {
+        Thread writer = new Thread(() -> {
+            try {
+                while (true) {
+                    if (!journal.awaitBatch(WRITER_BATCH, WRITER_FLUSH_MS)) {
+                        continue;
+                    }
+                    List<RentalJournal.Entry> batch = journal.readPending(WRITER_BATCH);
+                    if (batch.isEmpty()) {
+                        continue;
+                    }
+                    long lastSeq = batch.get(batch.size() - 1).seq;
+                    repository.applyJournal(JOURNAL_NAME, batch);
+                    journal.markApplied(batch.get(batch.size() - 1));
+                    repository.journalApplied(lastSeq);
+                }
+            } catch (InterruptedException e) {
+                // прогон закончен
+            } catch (SQLException e) {
+                System.out.println("Error applying rental journal: " + e.getMessage());
+            }
+        }, "rental-journal-benchmark-writer");
+        writer.start();
+        return writer;
+    }
+
+    private static void awaitDrained(RentalJournal journal) throws InterruptedException {
+        while (journal.getPendingCount() > 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    // Операции 0..operations-1 поровну между потоками; возвращает наносекунды на весь прогон
+    private static long runParallel(int threads, int operations, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = first; i < operations; i += threads) {
+                    check(operation.run(i) >= 0, "journal accepted the record");
+                }
+                return null;
+            }));
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        return elapsed;
+    }
+
+    private static void report(String name, long nanos, int operations) {
+        System.out.printf("%-32s %9.0f ops/s, %8.1f us/op%n", name,
+                operations * 1e9 / nanos, nanos / 1e3 / operations);
+    }
+
+    private static List<Integer> rentalIdsFor(List<Integer> cars) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT id FROM rentals WHERE car_id = ANY (?) AND status = 'PENDING' ORDER BY id")) {
+            pstmt.setArray(1, conn.createArrayOf("integer", cars.toArray()));
+            List<Integer> ids = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+            return ids;
+        }
+    }
+
+    // Создаёт машины теста; возвращает id существующего пользователя, от имени которого идут брони
+    private static int insertFixture(List<Integer> carIds, int carCount) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            int userId;
+            int categoryId;
+            try (Statement stmt = conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("SELECT id FROM users ORDER BY id LIMIT 1")) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("RentalJournalBenchmark needs at least one user");
+                    }
+                    userId = rs.getInt(1);
+                }
+                try (ResultSet rs = stmt.executeQuery("SELECT id FROM categories ORDER BY id LIMIT 1")) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("RentalJournalBenchmark needs at least one category");
+                    }
+                    categoryId = rs.getInt(1);
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO cars (brand, model, license_plate, year, category_id, daily_price, is_available) " +
+                            "VALUES ('Journal', 'Benchmark', ?, 2020, ?, 15.0, true)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                String run = Long.toString(System.nanoTime() % 100000);
+                for (int i = 0; i < carCount; i++) {
+                    pstmt.setString(1, PLATE_PREFIX + run + "-" + i);
+                    pstmt.setInt(2, categoryId);
+                    pstmt.executeUpdate();
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            carIds.add(keys.getInt(1));
+                        }
+                    }
+                }
+            }
+            return userId;
+        }
+    }
+
+    private static void deleteFixture(List<Integer> carIds) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            if (!carIds.isEmpty()) {
+                Object[] ids = carIds.toArray();
+                try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM rentals WHERE car_id = ANY (?)")) {
+                    pstmt.setArray(1, conn.createArrayOf("integer", ids));
+                    pstmt.executeUpdate();
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM cars WHERE id = ANY (?)")) {
+                    pstmt.setArray(1, conn.createArrayOf("integer", ids));
+                    pstmt.executeUpdate();
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM rental_journal WHERE name = ?")) {
+                pstmt.setString(1, JOURNAL_NAME);
+                pstmt.executeUpdate();
+            } catch (SQLException e) {
+                // Таблицы нет - журнал так и не запускался
+            }
+        }
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new AssertionError("Failed: " + description);
+        }
+    }
+
+    private interface Operation {
+        long run(int index) throws Exception;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+package repositories;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+// Основа для заглушек ResultSetMetaData в тестах без базы, см. UnsupportedResultSet
+abstract class UnsupportedResultSetMetaData implements ResultSetMetaData {
+    @Override
+    public String getCatalogName(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public String getColumnClassName(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public int getColumnCount() throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public int getColumnDisplaySize(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public String getColumnLabel(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public String getColumnName(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public int getColumnType(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public String getColumnTypeName(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public int getPrecision(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public int getScale(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public String getSchemaName(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public String getTableName(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public boolean isAutoIncrement(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public boolean isCaseSensitive(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public boolean isCurrency(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public boolean isDefinitelyWritable(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public int isNullable(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public boolean isReadOnly(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public boolean isSearchable(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public boolean isSigned(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> value) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public boolean isWritable(int column) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> value) throws SQLException {
+        throw UnsupportedResultSet.unsupported();
+    }
+}
\ No newline at end of file